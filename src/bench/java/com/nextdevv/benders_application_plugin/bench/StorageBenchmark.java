@@ -0,0 +1,239 @@
+package com.nextdevv.benders_application_plugin.bench;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodec;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodecs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Plain timing harness for the storage layer, run with {@code ./gradlew bench}.
+ * <p>
+ * Times insert, loot update and lookup by name with a statement prepared per call in rollback journal mode,
+ * with cached statements in WAL mode, and with cached statements batched in transactions like the write queue
+ * does. Then times every loot compression codec on the same payload. The SQLite driver ships with the server,
+ * so pass its jar with {@code -PsqliteJdbc=<path>}; without it only the codecs are timed.
+ * <p>
+ * These are wall clock timings after a warmup run, not a JMH benchmark, so compare runs on the same machine only.
+ */
+public final class StorageBenchmark {
+    private static final String CREATE_SQL = "CREATE TABLE mystic_chests (id INTEGER PRIMARY KEY, nonce INTEGER NOT NULL, name TEXT NOT NULL UNIQUE, "
+            + "world TEXT NOT NULL, x INTEGER NOT NULL, y INTEGER NOT NULL, z INTEGER NOT NULL, locked BOOLEAN NOT NULL, loot_data BLOB, "
+            + "UNIQUE (world, x, y, z))";
+    private static final String INSERT_SQL = "INSERT INTO mystic_chests (id, nonce, name, world, x, y, z, locked, loot_data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_LOOT_SQL = "UPDATE mystic_chests SET loot_data = ? WHERE name = ?";
+    private static final String SELECT_BY_NAME_SQL = "SELECT * FROM mystic_chests WHERE name = ?";
+    private static final int BATCH_SIZE = 64;
+
+    private final Mode mode;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    private StorageBenchmark(Mode mode, Connection connection) {
+        this.mode = mode;
+        this.connection = connection;
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the number of operations per run, 2000 by default
+     * @throws Exception if a run fails
+     */
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        byte[] loot = samplePayload();
+
+        if (hasDriver()) {
+            System.out.printf("SQLite, %d operations per run, %d byte loot%n", operations, loot.length);
+            for (Mode mode : Mode.values()) {
+                runDatabase(mode, operations / 10, loot);
+                System.out.println(mode.description + ": " + runDatabase(mode, operations, loot));
+            }
+        } else {
+            System.out.println("SQLite driver not on the classpath, skipping the database runs");
+        }
+
+        System.out.printf("Loot compression, %d operations per run, %d byte loot%n", operations * 10, loot.length);
+        for (LootCodec codec : List.of(LootCodecs.NONE, LootCodecs.RLE, LootCodecs.FAST, LootCodecs.HIGH)) {
+            runCodec(codec, loot, operations);
+            System.out.println(codec.getName() + ": " + runCodec(codec, loot, operations * 10));
+        }
+    }
+
+    private static String runDatabase(Mode mode, int operations, byte[] loot) throws SQLException, IOException {
+        Path file = Files.createTempFile("mystic-chests-bench", ".db");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            StorageBenchmark benchmark = new StorageBenchmark(mode, connection);
+            benchmark.configure();
+
+            double insert = benchmark.time(operations, true, i -> benchmark.execute(INSERT_SQL, pstmt -> {
+                pstmt.setInt(1, i + 1);
+                pstmt.setInt(2, i);
+                pstmt.setString(3, "chest-" + i);
+                pstmt.setString(4, "world");
+                pstmt.setInt(5, i);
+                pstmt.setInt(6, 64);
+                pstmt.setInt(7, -i);
+                pstmt.setBoolean(8, true);
+                pstmt.setBytes(9, loot);
+                pstmt.executeUpdate();
+            }));
+            double update = benchmark.time(operations, true, i -> benchmark.execute(UPDATE_LOOT_SQL, pstmt -> {
+                pstmt.setBytes(1, loot);
+                pstmt.setString(2, "chest-" + i);
+                pstmt.executeUpdate();
+            }));
+            double lookup = benchmark.time(operations, false, i -> benchmark.execute(SELECT_BY_NAME_SQL, pstmt -> {
+                pstmt.setString(1, "chest-" + i);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) throw new IllegalStateException("Missing chest-" + i);
+                }
+            }));
+
+            benchmark.statements.values().forEach(StorageBenchmark::closeQuietly);
+            return String.format("insert %.0f ops/s, update loot %.0f ops/s, lookup by name %.0f ops/s", insert, update, lookup);
+        } finally {
+            for (String suffix : List.of("", "-wal", "-shm", "-journal")) {
+                Files.deleteIfExists(Path.of(file + suffix));
+            }
+        }
+    }
+
+    private static String runCodec(LootCodec codec, byte[] loot, int operations) {
+        byte[] compressed = codec.compress(loot);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) codec.compress(loot);
+        double compress = operations / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) codec.decompress(compressed, 0, compressed.length);
+        double decompress = operations / ((System.nanoTime() - start) / 1e9);
+
+        return String.format("%d bytes (%.1f%%), compress %.0f ops/s, decompress %.0f ops/s",
+                compressed.length, compressed.length * 100.0 / loot.length, compress, decompress);
+    }
+
+    private void configure() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            if (mode == Mode.PER_CALL) {
+                stmt.execute("PRAGMA journal_mode = DELETE");
+            } else {
+                SQLiteDatabase.Pragmas pragmas = SQLiteDatabase.Pragmas.DEFAULT;
+                stmt.execute("PRAGMA journal_mode = WAL");
+                stmt.execute("PRAGMA synchronous = " + pragmas.synchronous());
+                stmt.execute("PRAGMA cache_size = " + pragmas.cacheSize());
+                stmt.execute("PRAGMA mmap_size = " + pragmas.mmapSize());
+                stmt.execute("PRAGMA temp_store = MEMORY");
+            }
+            stmt.execute(CREATE_SQL);
+        }
+    }
+
+    private double time(int operations, boolean write, Operation operation) throws SQLException {
+        boolean batched = write && mode == Mode.BATCHED;
+        if (batched) connection.setAutoCommit(false);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            operation.run(i);
+            if (batched && (i + 1) % BATCH_SIZE == 0) connection.commit();
+        }
+        if (batched) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        return operations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void execute(String sql, Binding binding) throws SQLException {
+        if (mode == Mode.PER_CALL) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                binding.run(pstmt);
+            }
+            return;
+        }
+
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        }
+        binding.run(pstmt);
+    }
+
+    /**
+     * Builds a payload shaped like encoded loot: 27 slots of a few common materials with small counts and tags.
+     */
+    private static byte[] samplePayload() {
+        String[] materials = {"DIAMOND", "IRON_INGOT", "GOLDEN_APPLE", "ENCHANTED_BOOK", "OAK_LOG", "EMERALD"};
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (int slot = 0; slot < 27; slot++) {
+            byte[] material = materials[random.nextInt(materials.length)].getBytes(StandardCharsets.UTF_8);
+            out.write(slot);
+            out.write(material.length);
+            out.writeBytes(material);
+            out.write(1 + random.nextInt(64));
+            byte[] tag = new byte[random.nextInt(24)];
+            random.nextBytes(tag);
+            out.write(tag.length);
+            out.writeBytes(tag);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean hasDriver() {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private enum Mode {
+        PER_CALL("statement per call, rollback journal"),
+        CACHED("cached statements, WAL"),
+        BATCHED("cached statements, WAL, " + BATCH_SIZE + " writes per transaction");
+
+        private final String description;
+
+        Mode(String description) {
+            this.description = description;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int i) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Binding {
+        void run(PreparedStatement pstmt) throws SQLException;
+    }
+}
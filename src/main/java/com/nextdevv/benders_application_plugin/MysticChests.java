@@ -2,31 +2,86 @@ package com.nextdevv.benders_application_plugin;
 
 import com.nextdevv.benders_application_plugin.commands.CommandManager;
 import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.database.WriteBehindQueue;
 import com.nextdevv.benders_application_plugin.items.MysticChestItemGui;
 import com.nextdevv.benders_application_plugin.listeners.BlockBreakListener;
+import com.nextdevv.benders_application_plugin.listeners.ChestProtectionListener;
+import com.nextdevv.benders_application_plugin.listeners.ChunkListener;
+import com.nextdevv.benders_application_plugin.listeners.GuideListener;
+import com.nextdevv.benders_application_plugin.listeners.InventoryClickListener;
 import com.nextdevv.benders_application_plugin.listeners.InventoryCloseListener;
 import com.nextdevv.benders_application_plugin.listeners.PlayerInteractListener;
+import com.nextdevv.benders_application_plugin.listeners.PlayerItemHeldListener;
+import com.nextdevv.benders_application_plugin.listeners.PlayerKeyListener;
+import com.nextdevv.benders_application_plugin.objects.ChestGrid;
+import com.nextdevv.benders_application_plugin.objects.ChestRegistry;
+import com.nextdevv.benders_application_plugin.objects.ChestStore;
+import com.nextdevv.benders_application_plugin.objects.GuideItemStore;
+import com.nextdevv.benders_application_plugin.objects.GuideService;
+import com.nextdevv.benders_application_plugin.objects.LiveChestInventories;
+import com.nextdevv.benders_application_plugin.objects.LootCache;
+import com.nextdevv.benders_application_plugin.objects.LootPipeline;
 import com.nextdevv.benders_application_plugin.objects.MysticChest;
+import com.nextdevv.benders_application_plugin.objects.PlayerKeyIndex;
+import com.nextdevv.benders_application_plugin.utils.LootSerializer;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodecs;
+import com.nextdevv.benders_application_plugin.utils.compression.LootDictionary;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 public final class MysticChests extends JavaPlugin {
     private SQLiteDatabase database;
     private InventoryCloseListener inventoryCloseListener = new InventoryCloseListener();
-    private List<SQLiteDatabase.ChestData> chests = new ArrayList<>();
-    private HashMap<UUID, HashMap<String, MysticChestItemGui>> playerChests = new HashMap<>();
+    private final ChestStore chests = new ChestStore();
+    private final ChestRegistry chestRegistry = new ChestRegistry();
+    private final ChestGrid chestGrid = new ChestGrid();
+    private final Set<SQLiteDatabase.ChestData> dirtyChests = new LinkedHashSet<>();
+    private LootCache lootCache;
+    private LootPipeline lootPipeline;
+    private LiveChestInventories liveInventories;
+    private GuideService guideService;
+    private PlayerKeyIndex keyIndex;
+    private GuideItemStore guideItems;
 
     @Override
     public void onEnable() {
         getLogger().info("=== MysticChests Plugin ===");
 
+        saveDefaultConfig();
+        try {
+            LootSerializer.setDefaultCodec(LootSerializer.codecByName(getConfig().getString("loot.item-codec", "compact")));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning(e.getMessage() + ", using the compact item codec");
+        }
+        try {
+            LootSerializer.setDefaultCompression(LootCodecs.byName(getConfig().getString("loot.compression", "fast")));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning(e.getMessage() + ", using the fast compression");
+        }
+
         getLogger().info("Initializing database...");
-        this.database = new SQLiteDatabase();
+        this.database = new SQLiteDatabase(loadPragmas(), getLogger());
         database.initialize();
+        getLogger().info("Database schema at version " + database.getSchemaVersion());
+        lootCache = new LootCache(Math.max(0, getConfig().getLong("loot.cache.max-memory", 16384)) * 1024);
+        lootPipeline = new LootPipeline(this, lootCache, getConfig().getInt("loot.worker-threads", 2));
+        loadLootDictionary();
+        liveInventories = new LiveChestInventories(this, getConfig().getLong("inventory.idle-timeout", 60) * 1000);
+        keyIndex = new PlayerKeyIndex(this, getConfig().getInt("keys.reconcile-batch", 20));
+        guideItems = new GuideItemStore(getConfig().getInt("guide.max-players", 1000), getConfig().getLong("guide.item-idle-timeout", 600) * 1000);
+        guideService = new GuideService(this, getConfig().getInt("guide.particle-budget", 400), getConfig().getDouble("guide.max-distance", 1024));
 
         getLogger().info("Loading chests...");
-        chests = database.getAllChests();
+        long loadStart = System.nanoTime();
+        for (SQLiteDatabase.ChestData chest : database.streamChests()) {
+            chests.add(chest);
+            chestRegistry.add(chest);
+            chestGrid.add(chest);
+        }
+        getLogger().info(String.format("Loaded %d chests in %.1f ms", chests.size(), (System.nanoTime() - loadStart) / 1_000_000.0));
 
         getLogger().info("Registering commands...");
         Objects.requireNonNull(getCommand("mysticchest")).setExecutor(new CommandManager());
@@ -35,7 +90,26 @@ public final class MysticChests extends JavaPlugin {
         getLogger().info("Registering listeners...");
         getServer().getPluginManager().registerEvents(new PlayerInteractListener(this), this);
         getServer().getPluginManager().registerEvents(inventoryCloseListener, this);
+        getServer().getPluginManager().registerEvents(new InventoryClickListener(), this);
         getServer().getPluginManager().registerEvents(new BlockBreakListener(this), this);
+        getServer().getPluginManager().registerEvents(new ChestProtectionListener(this), this);
+        getServer().getPluginManager().registerEvents(new ChunkListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerItemHeldListener(this), this);
+        getServer().getPluginManager().registerEvents(new GuideListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerKeyListener(this), this);
+        getServer().getOnlinePlayers().forEach(keyIndex::rescan);
+
+        long sessionTimeout = getConfig().getLong("inventory.session-timeout", 300) * 1000;
+        getServer().getScheduler().runTaskTimer(this, () -> inventoryCloseListener.expireSessions(sessionTimeout), 1200, 1200);
+        long autosaveInterval = Math.max(1, getConfig().getLong("database.autosave-interval", 60)) * 20;
+        getServer().getScheduler().runTaskTimer(this, this::saveDirtyChests, autosaveInterval, autosaveInterval);
+        long flushInterval = Math.max(1, getConfig().getLong("inventory.flush-interval", 30)) * 20;
+        getServer().getScheduler().runTaskTimer(this, liveInventories::flush, flushInterval, flushInterval);
+        long guideInterval = Math.max(1, getConfig().getLong("guide.interval", 2));
+        getServer().getScheduler().runTaskTimer(this, guideService, 1, guideInterval);
+        getServer().getScheduler().runTaskTimer(this, guideItems::expire, 1200, 1200);
+        long reconcileInterval = Math.max(1, getConfig().getLong("keys.reconcile-interval", 5)) * 20;
+        getServer().getScheduler().runTaskTimer(this, keyIndex::reconcile, reconcileInterval, reconcileInterval);
 
         getLogger().info("Plugin is enabled!");
         getLogger().info("=== MysticChests Plugin ===");
@@ -45,16 +119,126 @@ public final class MysticChests extends JavaPlugin {
     public void onDisable() {
         getLogger().info("=== MysticChests Plugin ===");
 
-        getLogger().info("Saving chests...");
-        chests.forEach(chest -> database.updateChestLoot(chest.getName(), chest.getLoot()));
+        getLogger().info("Saving open chest inventories...");
+        if (liveInventories != null) liveInventories.shutdown();
+
+        getLogger().info("Finishing loot encoding...");
+        if (lootPipeline != null) lootPipeline.shutdown();
 
-        getLogger().info("Closing database connection...");
+        getLogger().info("Saving " + dirtyChests.size() + " changed chests...");
+        saveDirtyChests();
+
+        getLogger().info("Flushing pending writes and closing database connection...");
         database.close();
 
+        WriteBehindQueue writeQueue = database.getWriteQueue();
+        if (writeQueue != null) getLogger().info(String.format("Write queue: %d writes in %d transactions (%d coalesced), flush latency avg %.2f ms, max %.2f ms",
+                writeQueue.getWriteCount(), writeQueue.getFlushCount(), writeQueue.getCoalescedCount(),
+                writeQueue.getAverageFlushMillis(), writeQueue.getMaxFlushMillis()));
+
+        if (lootCache != null) getLogger().info(String.format("Loot cache: %d hits, %d misses, %d evictions, %d chests in %d KiB",
+                lootCache.getHitCount(), lootCache.getMissCount(), lootCache.getEvictionCount(),
+                lootCache.size(), lootCache.getEstimatedBytes() / 1024));
+
         getLogger().info("Plugin is disabled!");
         getLogger().info("=== MysticChests Plugin ===");
     }
 
+    /**
+     * Queues the loot of every changed chest in a single batch. Queueing happens before the chests stop being
+     * dirty, so a chest never looks saved while its loot is in neither the dirty set nor the write queue.
+     */
+    private void saveDirtyChests() {
+        if (dirtyChests.isEmpty()) return;
+
+        List<SQLiteDatabase.ChestData> saved = new ArrayList<>(dirtyChests);
+        Map<String, byte[]> loot = new LinkedHashMap<>();
+        saved.forEach(chest -> loot.put(chest.getName(), chest.getLoot()));
+        CompletableFuture<Void> future = database.updateChestLoot(loot);
+        dirtyChests.clear();
+
+        future.exceptionally(throwable -> {
+            if (!isEnabled()) {
+                getLogger().log(Level.SEVERE, "Could not save the loot of " + saved.size() + " chests", throwable);
+                return null;
+            }
+
+            getLogger().log(Level.WARNING, "Could not save the loot of " + saved.size() + " chests, retrying on the next autosave", throwable);
+            getServer().getScheduler().runTask(this, () -> saved.stream()
+                    .filter(chests::contains)
+                    .forEach(chest -> {
+                        // The loot may have been released since, so restore it before the retry
+                        if (!chest.isLootLoaded()) chest.setLoot(loot.get(chest.getName()));
+                        dirtyChests.add(chest);
+                    }));
+            return null;
+        });
+    }
+
+    /**
+     * Registers the stored loot dictionaries and activates the newest one. Without any, a dictionary is
+     * trained on the loot workers, so sampling the chest table never delays startup.
+     */
+    private void loadLootDictionary() {
+        byte[] active = null;
+        for (byte[] dictionary : database.getLootDictionaries()) {
+            LootDictionary.register(dictionary);
+            active = dictionary;
+        }
+
+        if (!getConfig().getBoolean("loot.dictionary.enabled", true)) {
+            LootDictionary.setActive(null);
+            return;
+        }
+        if (active != null) {
+            LootDictionary.setActive(active);
+            return;
+        }
+
+        int sampleCount = getConfig().getInt("loot.dictionary.samples", 500);
+        int minSamples = getConfig().getInt("loot.dictionary.min-samples", 16);
+        int maxSize = getConfig().getInt("loot.dictionary.size", LootDictionary.MAX_SIZE);
+        lootPipeline.execute(() -> trainLootDictionary(sampleCount, minSamples, maxSize)).exceptionally(throwable -> {
+            getLogger().log(Level.WARNING, "Could not train a loot dictionary", throwable);
+            return null;
+        });
+    }
+
+    private void trainLootDictionary(int sampleCount, int minSamples, int maxSize) {
+        List<byte[]> samples = new ArrayList<>();
+        for (byte[] payload : database.sampleLoot(sampleCount)) {
+            if (LootSerializer.codecOf(payload) != LootSerializer.getDefaultCodec()) continue;
+            try {
+                samples.add(LootSerializer.unwrap(payload));
+            } catch (IllegalStateException ignored) {
+            }
+        }
+
+        if (samples.size() < minSamples) {
+            getLogger().info("Not enough chests to train a loot dictionary yet (" + samples.size() + " samples)");
+            return;
+        }
+
+        byte[] trained = LootDictionary.train(samples, maxSize);
+        if (trained == null) return;
+
+        database.saveLootDictionary(LootDictionary.register(trained), trained);
+        LootDictionary.setActive(trained);
+        getLogger().info("Trained a " + trained.length + " byte loot dictionary from " + samples.size() + " chests");
+    }
+
+    private SQLiteDatabase.Pragmas loadPragmas() {
+        try {
+            return new SQLiteDatabase.Pragmas(
+                    getConfig().getString("database.synchronous", SQLiteDatabase.Pragmas.DEFAULT.synchronous()),
+                    getConfig().getInt("database.cache-size", SQLiteDatabase.Pragmas.DEFAULT.cacheSize()),
+                    getConfig().getLong("database.mmap-size", SQLiteDatabase.Pragmas.DEFAULT.mmapSize()));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning(e.getMessage() + ", using the default database settings");
+            return SQLiteDatabase.Pragmas.DEFAULT;
+        }
+    }
+
     public SQLiteDatabase getDatabase() {
         return database;
     }
@@ -63,47 +247,93 @@ public final class MysticChests extends JavaPlugin {
         return inventoryCloseListener;
     }
 
-    public List<SQLiteDatabase.ChestData> getChests() {
+    public ChestStore getChests() {
         return chests;
     }
 
+    public ChestRegistry getChestRegistry() {
+        return chestRegistry;
+    }
+
+    public ChestGrid getChestGrid() {
+        return chestGrid;
+    }
+
+    public LootCache getLootCache() {
+        return lootCache;
+    }
+
+    public LootPipeline getLootPipeline() {
+        return lootPipeline;
+    }
+
+    public LiveChestInventories getLiveInventories() {
+        return liveInventories;
+    }
+
+    public GuideService getGuideService() {
+        return guideService;
+    }
+
+    public PlayerKeyIndex getKeyIndex() {
+        return keyIndex;
+    }
+
     public void addChest(SQLiteDatabase.ChestData chest) {
         chests.add(chest);
+        chestRegistry.add(chest);
+        chestGrid.add(chest);
     }
 
     public void removeChest(String name) {
-        chests.removeIf(chest -> chest.getName().equals(name));
+        SQLiteDatabase.ChestData chest = chests.remove(name);
+        if (chest == null) return;
+
+        chestRegistry.remove(chest);
+        chestGrid.remove(chest);
+        dirtyChests.remove(chest);
+        lootCache.invalidate(name);
+        liveInventories.discard(name);
+    }
+
+    /**
+     * Drops the cached and loaded loot of a chest, keeping the loot only if it is not saved yet or in use.
+     * The loot is read again from the database the next time it is needed.
+     *
+     * @param chest the chest
+     */
+    public void releaseLoot(SQLiteDatabase.ChestData chest) {
+        lootCache.invalidate(chest.getName());
+        if (dirtyChests.contains(chest) || liveInventories.isOpen(chest.getName()) || database.hasPendingWrite(chest.getName())) return;
+
+        chest.releaseLoot(database::loadLoot);
     }
 
     public void updateChest(MysticChest mysticChest) {
-        SQLiteDatabase.ChestData data = chests.stream().filter(chest -> chest.getName().equals(mysticChest.getName())).findFirst().orElse(null);
+        SQLiteDatabase.ChestData data = chests.get(mysticChest.getName());
         if(data == null) return;
 
         data.setLoot(mysticChest.getLoot());
-        database.updateChestLockStatus(data.getId(), mysticChest.isLocked());
-    }
-
-    public HashMap<UUID, HashMap<String, MysticChestItemGui>> getPlayerChests() {
-        return playerChests;
+        dirtyChests.add(data);
     }
 
-    public void addPlayerChest(UUID uuid, HashMap<String, MysticChestItemGui> chests) {
-        if (!playerChests.containsKey(uuid)) playerChests.put(uuid, new HashMap<>());
-        playerChests.put(uuid, chests);
+    public GuideItemStore getGuideItems() {
+        return guideItems;
     }
 
     public void addPlayerChest(UUID uuid, String chestName, MysticChestItemGui chest) {
-        if(!playerChests.containsKey(uuid)) playerChests.put(uuid, new HashMap<>());
-        playerChests.get(uuid).put(chestName, chest);
+        guideItems.put(uuid, chestName, chest);
     }
 
     public MysticChestItemGui getPlayerChest(UUID uuid, String chestName) {
-        if (!playerChests.containsKey(uuid)) return null;
-        return playerChests.get(uuid).get(chestName);
+        return guideItems.get(uuid, chestName);
     }
 
     public boolean hasPlayerChest(UUID uuid, String chestName) {
-        if(!playerChests.containsKey(uuid)) return false;
-        return playerChests.get(uuid).containsKey(chestName);
+        return guideItems.get(uuid, chestName) != null;
+    }
+
+    public void removePlayerChest(UUID uuid, String chestName) {
+        guideItems.remove(uuid, chestName);
     }
 }
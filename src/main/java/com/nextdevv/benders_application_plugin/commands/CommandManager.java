@@ -2,6 +2,8 @@ package com.nextdevv.benders_application_plugin.commands;
 
 import com.nextdevv.benders_application_plugin.commands.sub.CreateCommand;
 import com.nextdevv.benders_application_plugin.commands.sub.GuideCommand;
+import com.nextdevv.benders_application_plugin.commands.sub.HintCommand;
+import com.nextdevv.benders_application_plugin.commands.sub.StatsCommand;
 import com.nextdevv.benders_application_plugin.utils.ChatUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -17,6 +19,8 @@ public class CommandManager implements CommandExecutor, TabExecutor {
     public CommandManager() {
         commands.add(new CreateCommand());
         commands.add(new GuideCommand());
+        commands.add(new HintCommand());
+        commands.add(new StatsCommand());
     }
 
     @Override
@@ -5,6 +5,7 @@ import com.nextdevv.benders_application_plugin.commands.CommandContext;
 import com.nextdevv.benders_application_plugin.commands.ICommand;
 import com.nextdevv.benders_application_plugin.objects.Callback;
 import com.nextdevv.benders_application_plugin.objects.MysticChest;
+import com.nextdevv.benders_application_plugin.objects.MysticChestHolder;
 import com.nextdevv.benders_application_plugin.utils.ChatUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -18,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.logging.Level;
 
 /**
  * Command to create a new Mystic Chest
@@ -63,20 +65,21 @@ public class CreateCommand implements ICommand {
 
         MysticChests plugin = JavaPlugin.getPlugin(MysticChests.class);
         String name = context.args()[0];
-        if(plugin.getChests().stream().anyMatch(chest -> chest.getName().equals(name))) {
-            context.sender().sendMessage(ChatUtil.color("&cA Mystic Chest with this name already exists!"));
-            return;
-        }
-
         Location location = player.getLocation();
+        if (isTaken(plugin, player, name, location)) return;
 
-        Inventory inventory = Bukkit.createInventory(null, 27, "Insert Mystic Chest Loot: ");
+        Inventory inventory = MysticChestHolder.create(name, 27, "Insert Mystic Chest Loot: ").getInventory();
         player.openInventory(inventory);
 
-        plugin.getInventoryCloseListener().addCallback(event -> {
-            if (!event.getView().getTitle().equals("Insert Mystic Chest Loot: ")) return;
+        plugin.getInventoryCloseListener().addCallback(player, inventory, event -> {
             List<ItemStack> items = Arrays.asList(event.getInventory().getContents());
 
+            // Another chest may have been created while the loot was being inserted
+            if (isTaken(plugin, player, name, location)) {
+                giveBack(player, items);
+                return;
+            }
+
             MysticChest mysticChest = new MysticChest(plugin.getDatabase(), name,
                     Objects.requireNonNull(location.getWorld()).getName(),
                     location.getBlockX(),
@@ -84,17 +87,61 @@ public class CreateCommand implements ICommand {
                     location.getBlockZ(),
                     true,
                     items);
-            mysticChest.saveToDatabase();
             plugin.addChest(mysticChest);
 
             ItemStack key = mysticChest.getKey();
             if (player.getInventory().firstEmpty() == -1) {
                 player.getWorld().dropItem(player.getLocation(), key);
-            } else player.getInventory().addItem(key);
+            } else {
+                player.getInventory().addItem(key);
+                plugin.getKeyIndex().add(player, mysticChest);
+            }
 
+            Material previous = location.getBlock().getType();
             location.getBlock().setType(Material.CHEST);
             player.sendBlockChange(location, Material.CHEST.createBlockData());
             context.sender().sendMessage(ChatUtil.color("&aMystic Chest created successfully!"));
+
+            mysticChest.saveToDatabase().exceptionally(throwable -> {
+                plugin.getLogger().log(Level.WARNING, "Could not save Mystic Chest " + name, throwable);
+                if (!plugin.isEnabled()) return null;
+
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    // The chest never reached the database, so it must not outlive a restart or keep its key working
+                    if (plugin.getChests().get(name) == mysticChest) plugin.removeChest(name);
+                    if (plugin.getChestRegistry().get(mysticChest.getWorld(), mysticChest.getX(), mysticChest.getY(), mysticChest.getZ()) == null
+                            && location.getBlock().getType() == Material.CHEST) {
+                        location.getBlock().setType(previous);
+                    }
+                    if (!player.isOnline()) return;
+
+                    player.getInventory().remove(key);
+                    plugin.getKeyIndex().markDirty(player);
+                    giveBack(player, items);
+                    player.sendMessage(ChatUtil.color("&cMystic Chest " + name + " could not be saved, it has been removed!"));
+                });
+                return null;
+            });
         });
     }
+
+    private static boolean isTaken(MysticChests plugin, Player player, String name, Location location) {
+        if(plugin.getChests().contains(name)) {
+            player.sendMessage(ChatUtil.color("&cA Mystic Chest with this name already exists!"));
+            return true;
+        }
+
+        if(plugin.getChestRegistry().get(Objects.requireNonNull(location.getWorld()).getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ()) != null) {
+            player.sendMessage(ChatUtil.color("&cA Mystic Chest already exists here!"));
+            return true;
+        }
+
+        return false;
+    }
+
+    private static void giveBack(Player player, List<ItemStack> items) {
+        ItemStack[] loot = items.stream().filter(Objects::nonNull).toArray(ItemStack[]::new);
+        player.getInventory().addItem(loot).values().forEach(item -> player.getWorld().dropItem(player.getLocation(), item));
+    }
 }
@@ -3,12 +3,10 @@ package com.nextdevv.benders_application_plugin.commands.sub;
 import com.nextdevv.benders_application_plugin.MysticChests;
 import com.nextdevv.benders_application_plugin.commands.CommandContext;
 import com.nextdevv.benders_application_plugin.commands.ICommand;
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
 import com.nextdevv.benders_application_plugin.items.MysticChestItemGui;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.java.JavaPlugin;
 import xyz.xenondevs.invui.gui.Gui;
 import xyz.xenondevs.invui.gui.structure.Structure;
@@ -16,7 +14,6 @@ import xyz.xenondevs.invui.item.builder.ItemBuilder;
 import xyz.xenondevs.invui.window.Window;
 
 import java.util.List;
-import java.util.Objects;
 
 public class GuideCommand implements ICommand {
     private final MysticChests plugin = JavaPlugin.getPlugin(MysticChests.class);
@@ -63,21 +60,17 @@ public class GuideCommand implements ICommand {
                 .setGui(gui)
                 .setTitle("Guide")
                 .addOpenHandler(() -> {
-                    player.getInventory().forEach(item -> {
-                        if(item == null)
-                            return;
-                        PersistentDataContainer container = Objects.requireNonNull(item.getItemMeta()).getPersistentDataContainer();
-                        if(container.has(new NamespacedKey(JavaPlugin.getPlugin(MysticChests.class), "mystic-chest-key"))) {
-                            String name = container.get(new NamespacedKey(JavaPlugin.getPlugin(MysticChests.class), "mystic-chest-name"), PersistentDataType.STRING);
-                            if(plugin.hasPlayerChest(player.getUniqueId(), name))
-                                gui.addItems(plugin.getPlayerChest(player.getUniqueId(), name));
-                            else {
-                                MysticChestItemGui itemGui = new MysticChestItemGui(name);
-                                plugin.addPlayerChest(player.getUniqueId(), name, itemGui);
-                                gui.addItems(itemGui);
-                            }
+                    for (SQLiteDatabase.ChestData chest : plugin.getKeyIndex().getKeys(player)) {
+                        String name = chest.getName();
+                        if(plugin.hasPlayerChest(player.getUniqueId(), name))
+                            gui.addItems(plugin.getPlayerChest(player.getUniqueId(), name));
+                        else {
+                            MysticChestItemGui itemGui = new MysticChestItemGui(name);
+                            itemGui.setClicked(plugin.getGuideService().isActive(player.getUniqueId(), name));
+                            plugin.addPlayerChest(player.getUniqueId(), name, itemGui);
+                            gui.addItems(itemGui);
                         }
-                    });
+                    }
                 })
                 .build();
 
@@ -0,0 +1,76 @@
+package com.nextdevv.benders_application_plugin.commands.sub;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.commands.CommandContext;
+import com.nextdevv.benders_application_plugin.commands.ICommand;
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.utils.ChatUtil;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Command to tell how close the nearest locked Mystic Chest the player holds a key for is
+ */
+public class HintCommand implements ICommand {
+    private final MysticChests plugin = JavaPlugin.getPlugin(MysticChests.class);
+
+    @Override
+    public String getName() {
+        return "hint";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Tell how close the nearest Mystic Chest you have a key for is";
+    }
+
+    @Override
+    public String getUsage() {
+        return "hint";
+    }
+
+    @Override
+    public List<String> complete(CommandContext context) {
+        return List.of();
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+        if(!(context.sender() instanceof Player player)) {
+            context.sender().sendMessage(ChatUtil.color("&cOnly players can execute this command!"));
+            return;
+        }
+
+        Set<SQLiteDatabase.ChestData> keys = plugin.getKeyIndex().getKeys(player);
+        if(keys.isEmpty()) {
+            player.sendMessage(ChatUtil.color("&cYou don't have any Mystic Chest key!"));
+            return;
+        }
+
+        Location location = player.getLocation();
+        SQLiteDatabase.ChestData chest = plugin.getChestGrid().nearest(Objects.requireNonNull(location.getWorld()).getName(),
+                location.getX(), location.getY(), location.getZ(), candidate -> candidate.isLocked() && keys.contains(candidate));
+        if(chest == null) {
+            player.sendMessage(ChatUtil.color("&7None of your Mystic Chests are in this world."));
+            return;
+        }
+
+        double dx = chest.getX() + 0.5 - location.getX();
+        double dy = chest.getY() + 0.5 - location.getY();
+        double dz = chest.getZ() + 0.5 - location.getZ();
+        player.sendMessage(ChatUtil.color("&7The Mystic Chest &6" + chest.getName() + " &7is " + describe(Math.sqrt(dx * dx + dy * dy + dz * dz))));
+    }
+
+    private static String describe(double distance) {
+        if(distance < 16) return "&cburning hot!";
+        if(distance < 48) return "&6hot.";
+        if(distance < 128) return "&ewarm.";
+        if(distance < 512) return "&bcold.";
+        return "&9freezing cold.";
+    }
+}
@@ -0,0 +1,78 @@
+package com.nextdevv.benders_application_plugin.commands.sub;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.commands.CommandContext;
+import com.nextdevv.benders_application_plugin.commands.ICommand;
+import com.nextdevv.benders_application_plugin.database.WriteBehindQueue;
+import com.nextdevv.benders_application_plugin.objects.GuideItemStore;
+import com.nextdevv.benders_application_plugin.objects.LootCache;
+import com.nextdevv.benders_application_plugin.objects.PlayerKeyIndex;
+import com.nextdevv.benders_application_plugin.utils.ChatUtil;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.List;
+
+/**
+ * Command to report the memory use and metrics of the plugin
+ */
+public class StatsCommand implements ICommand {
+    public static final String PERMISSION = "benders_application_plugin.admin";
+
+    private final MysticChests plugin = JavaPlugin.getPlugin(MysticChests.class);
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Show the memory use and metrics of the Mystic Chests";
+    }
+
+    @Override
+    public String getUsage() {
+        return "stats";
+    }
+
+    @Override
+    public List<String> complete(CommandContext context) {
+        return List.of();
+    }
+
+    @Override
+    public void execute(CommandContext context) {
+        CommandSender sender = context.sender();
+        if(!sender.hasPermission(PERMISSION)) {
+            sender.sendMessage(ChatUtil.color("&cYou don't have permission to execute this command!"));
+            return;
+        }
+
+        LootCache lootCache = plugin.getLootCache();
+        WriteBehindQueue writeQueue = plugin.getDatabase().getWriteQueue();
+        PlayerKeyIndex keyIndex = plugin.getKeyIndex();
+        GuideItemStore guideItems = plugin.getGuideItems();
+        Runtime runtime = Runtime.getRuntime();
+
+        sender.sendMessage(ChatUtil.color("&6=== Mystic Chests stats ==="));
+        sender.sendMessage(ChatUtil.color(String.format("&7Chests: &f%d &7(%d loaded chunks)",
+                plugin.getChests().size(), plugin.getChestRegistry().getLoadedChunkCount())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Loot cache: &f%d chests, %d/%d KiB &7(%d hits, %d misses, %d evictions)",
+                lootCache.size(), lootCache.getEstimatedBytes() / 1024, lootCache.getMaxBytes() / 1024,
+                lootCache.getHitCount(), lootCache.getMissCount(), lootCache.getEvictionCount())));
+        if(writeQueue != null) sender.sendMessage(ChatUtil.color(String.format("&7Write queue: &f%d pending &7(%d writes in %d transactions, %d coalesced, flush avg %.2f ms, max %.2f ms)",
+                writeQueue.getQueueDepth(), writeQueue.getWriteCount(), writeQueue.getFlushCount(), writeQueue.getCoalescedCount(),
+                writeQueue.getAverageFlushMillis(), writeQueue.getMaxFlushMillis())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Inventories: &f%d live, %d sessions",
+                plugin.getLiveInventories().size(), plugin.getInventoryCloseListener().getSessionCount())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Guides: &f%d players, %d particles last run",
+                plugin.getGuideService().getPlayerCount(), plugin.getGuideService().getLastParticleCount())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Guide items: &f%d players, %d items, ~%d KiB &7(%d evictions)",
+                guideItems.size(), guideItems.getItemCount(), guideItems.getEstimatedBytes() / 1024, guideItems.getEvictionCount())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Key index: &f%d players &7(%d rescans, %d drift repairs)",
+                keyIndex.size(), keyIndex.getRescanCount(), keyIndex.getDriftCount())));
+        sender.sendMessage(ChatUtil.color(String.format("&7Heap: &f%d/%d MiB",
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024), runtime.maxMemory() / (1024 * 1024))));
+    }
+}
@@ -1,16 +1,122 @@
 package com.nextdevv.benders_application_plugin.database;
 
+import com.nextdevv.benders_application_plugin.utils.LootSerializer;
+
+import java.security.SecureRandom;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
 
 public class SQLiteDatabase {
 
     private static final String DATABASE_FILE = "mystic_chests.db";
     private static final String TABLE_NAME = "mystic_chests";
+    private static final String DICTIONARY_TABLE_NAME = "loot_dictionaries";
+    private static final String DUPLICATES_TABLE_NAME = "chests_duplicates";
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * Schema migrations, indexed by the user_version they upgrade from.
+     */
+    private static final String[][] MIGRATIONS = {
+            {
+                    "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+                            + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                            + "name TEXT NOT NULL, "
+                            + "world TEXT NOT NULL, "
+                            + "x INTEGER NOT NULL, "
+                            + "y INTEGER NOT NULL, "
+                            + "z INTEGER NOT NULL, "
+                            + "locked BOOLEAN DEFAULT true, "
+                            + "loot TEXT"
+                            + ")"
+            },
+            {
+                    // Duplicates are moved aside rather than dropped, so an admin can recover them
+                    "CREATE TABLE IF NOT EXISTS " + DUPLICATES_TABLE_NAME + " AS SELECT * FROM " + TABLE_NAME + " WHERE 0",
+                    "INSERT INTO " + DUPLICATES_TABLE_NAME + " SELECT * FROM " + TABLE_NAME + " WHERE id NOT IN (SELECT MIN(id) FROM " + TABLE_NAME + " GROUP BY name)",
+                    "DELETE FROM " + TABLE_NAME + " WHERE id NOT IN (SELECT MIN(id) FROM " + TABLE_NAME + " GROUP BY name)",
+                    "INSERT INTO " + DUPLICATES_TABLE_NAME + " SELECT * FROM " + TABLE_NAME + " WHERE id NOT IN (SELECT MIN(id) FROM " + TABLE_NAME + " GROUP BY world, x, y, z)",
+                    "DELETE FROM " + TABLE_NAME + " WHERE id NOT IN (SELECT MIN(id) FROM " + TABLE_NAME + " GROUP BY world, x, y, z)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_" + TABLE_NAME + "_name ON " + TABLE_NAME + " (name)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_" + TABLE_NAME + "_location ON " + TABLE_NAME + " (world, x, y, z)"
+            },
+            {
+                    "ALTER TABLE " + TABLE_NAME + " ADD COLUMN loot_data BLOB"
+            },
+            {
+                    "CREATE TABLE IF NOT EXISTS " + DICTIONARY_TABLE_NAME + " ("
+                            + "id INTEGER PRIMARY KEY, "
+                            + "data BLOB NOT NULL, "
+                            + "created_at INTEGER NOT NULL"
+                            + ")"
+            },
+            {
+                    "ALTER TABLE " + TABLE_NAME + " ADD COLUMN nonce INTEGER NOT NULL DEFAULT 0",
+                    "UPDATE " + TABLE_NAME + " SET nonce = (random() & 2147483647) | 1"
+            }
+    };
 
+    /**
+     * The schema version whose migration moves duplicate chests to {@link #DUPLICATES_TABLE_NAME}.
+     */
+    private static final int DEDUPLICATION_VERSION = 2;
+
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE_NAME + " (id, nonce, name, world, x, y, z, locked, loot_data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String UPDATE_LOOT_SQL = "UPDATE " + TABLE_NAME + " SET loot_data = ?, loot = NULL WHERE name = ?";
+    private static final String UPDATE_LOCK_SQL = "UPDATE " + TABLE_NAME + " SET locked = ? WHERE name = ?";
+    private static final String DELETE_BY_ID_SQL = "DELETE FROM " + TABLE_NAME + " WHERE id = ?";
+    private static final String DELETE_BY_NAME_SQL = "DELETE FROM " + TABLE_NAME + " WHERE name = ?";
+    private static final String SELECT_METADATA_PAGE_SQL = "SELECT id, nonce, name, world, x, y, z, locked FROM " + TABLE_NAME + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_LOOT_SQL = "SELECT loot_data, loot FROM " + TABLE_NAME + " WHERE id = ?";
+    private static final String SELECT_LAST_ID_SQL = "SELECT MAX(COALESCE((SELECT seq FROM sqlite_sequence WHERE name = '" + TABLE_NAME + "'), 0), "
+            + "COALESCE((SELECT MAX(id) FROM " + TABLE_NAME + "), 0))";
+    private static final String SELECT_BY_NAME_SQL = "SELECT * FROM " + TABLE_NAME + " WHERE name = ?";
+    private static final String SELECT_ID_RANGE_SQL = "SELECT MIN(id), MAX(id) FROM " + TABLE_NAME;
+    private static final String SAMPLE_LOOT_SQL = "SELECT loot_data FROM " + TABLE_NAME + " WHERE id >= ? AND id < ? AND loot_data IS NOT NULL ORDER BY id LIMIT ?";
+    private static final String SELECT_DICTIONARIES_SQL = "SELECT data FROM " + DICTIONARY_TABLE_NAME + " ORDER BY created_at";
+    private static final String INSERT_DICTIONARY_SQL = "INSERT OR IGNORE INTO " + DICTIONARY_TABLE_NAME + " (id, data, created_at) VALUES (?, ?, ?)";
+
+    private final Pragmas pragmas;
+    private final Logger logger;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Map<String, PreparedStatement> readStatements = new HashMap<>();
+    private final Object readLock = new Object();
+    private final AtomicInteger lastId = new AtomicInteger();
     private Connection connection;
+    private Connection readConnection;
+    private WriteBehindQueue writeQueue;
+    private int schemaVersion;
+
+    /**
+     * Create a database using the default pragmas.
+     */
+    public SQLiteDatabase() {
+        this(Pragmas.DEFAULT);
+    }
+
+    /**
+     * Create a database using the given pragmas.
+     *
+     * @param pragmas The connection pragmas.
+     */
+    public SQLiteDatabase(Pragmas pragmas) {
+        this(pragmas, Logger.getLogger(SQLiteDatabase.class.getName()));
+    }
+
+    /**
+     * Create a database using the given pragmas and logger.
+     *
+     * @param pragmas The connection pragmas.
+     * @param logger  The logger migrations report to.
+     */
+    public SQLiteDatabase(Pragmas pragmas, Logger logger) {
+        this.pragmas = pragmas;
+        this.logger = logger;
+    }
 
     /**
      * Initialize the SQLite database and create the necessary table if it doesn't exist.
@@ -18,36 +124,153 @@ public class SQLiteDatabase {
     public void initialize() {
         try {
             connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_FILE);
-            createTable();
+            configure();
+            migrate();
+            loadLastId();
+            readConnection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_FILE);
+            configureRead();
+            writeQueue = new WriteBehindQueue(this);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Create the chests table if it doesn't exist.
+     * Switch the connection to WAL mode and apply the configured pragmas.
      */
-    private void createTable() {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
-                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
-                + "name TEXT NOT NULL, "
-                + "world TEXT NOT NULL, "
-                + "x INTEGER NOT NULL, "
-                + "y INTEGER NOT NULL, "
-                + "z INTEGER NOT NULL, "
-                + "locked BOOLEAN DEFAULT true, "
-                + "loot TEXT"
-                + ");";
-
+    private void configure() throws SQLException {
         try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = " + pragmas.synchronous());
+            stmt.execute("PRAGMA cache_size = " + pragmas.cacheSize());
+            stmt.execute("PRAGMA mmap_size = " + pragmas.mmapSize());
+            stmt.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
+
+    /**
+     * Make the read connection read-only and apply the configured cache pragmas. In WAL mode its reads
+     * do not wait for the transactions of the write connection.
+     */
+    private void configureRead() throws SQLException {
+        try (Statement stmt = readConnection.createStatement()) {
+            stmt.execute("PRAGMA query_only = true");
+            stmt.execute("PRAGMA cache_size = " + pragmas.cacheSize());
+            stmt.execute("PRAGMA mmap_size = " + pragmas.mmapSize());
+            stmt.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
+
+    /**
+     * Get the cached prepared statement for the given query on the read connection, preparing it on first use.
+     * Must be called while holding the read lock.
+     *
+     * @param sql The query.
+     * @return The prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    private PreparedStatement readStatement(String sql) throws SQLException {
+        PreparedStatement pstmt = readStatements.get(sql);
+        if (pstmt == null) {
+            pstmt = readConnection.prepareStatement(sql);
+            readStatements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    /**
+     * Get the cached prepared statement for the given query, preparing it on first use.
+     *
+     * @param sql The query.
+     * @return The prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    private PreparedStatement statement(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    /**
+     * Bring the schema up to date, running every migration newer than the database's user_version.
+     * Each migration runs in its own transaction together with the version bump.
+     */
+    private void migrate() throws SQLException {
+        int version;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        schemaVersion = version;
+
+        for (int i = version; i < MIGRATIONS.length; i++) {
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : MIGRATIONS[i]) {
+                    stmt.execute(sql);
+                }
+                if (i + 1 == DEDUPLICATION_VERSION) logDuplicates(stmt);
+                stmt.execute("PRAGMA user_version = " + (i + 1));
+                connection.commit();
+                schemaVersion = i + 1;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Log every chest the deduplication migration moved out of the chest table.
+     */
+    private void logDuplicates(Statement stmt) throws SQLException {
+        int count = 0;
+        try (ResultSet rs = stmt.executeQuery("SELECT id, name, world, x, y, z FROM " + DUPLICATES_TABLE_NAME + " ORDER BY id")) {
+            while (rs.next()) {
+                logger.warning(String.format("Moved duplicate chest %s (id %d) at %s %d, %d, %d to the %s table",
+                        rs.getString("name"), rs.getInt("id"), rs.getString("world"), rs.getInt("x"), rs.getInt("y"), rs.getInt("z"), DUPLICATES_TABLE_NAME));
+                count++;
+            }
+        }
+        if (count > 0) logger.warning(count + " duplicate chests can be recovered from the " + DUPLICATES_TABLE_NAME + " table");
+    }
+
+    /**
+     * Read the highest id ever handed out, so new chests never reuse the id of a deleted one.
+     */
+    private void loadLastId() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_LAST_ID_SQL)) {
+            lastId.set(rs.next() ? rs.getInt(1) : 0);
         }
     }
 
     /**
-     * Save a new chest to the database.
+     * Reserve the id of a new chest. Ids are assigned here rather than by SQLite so that a chest has its
+     * id as soon as it is created, before its insert is flushed.
+     *
+     * @return The new id.
+     */
+    public int nextChestId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Get the schema version of the database.
+     *
+     * @return The number of migrations applied.
+     */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * Queue a new chest to be saved to the database, assigning it a new id and nonce.
      *
      * @param name    Chest name.
      * @param world   World name.
@@ -55,155 +278,422 @@ public class SQLiteDatabase {
      * @param y       Y-coordinate.
      * @param z       Z-coordinate.
      * @param locked  Whether the chest is locked.
-     * @param loot    Comma-separated list of loot items.
+     * @param loot    Encoded loot, see {@link LootSerializer}.
+     * @return A future completed once the chest has been written.
      */
-    public void saveChest(String name, String world, int x, int y, int z, boolean locked, String loot) {
-        String insertSQL = "INSERT INTO " + TABLE_NAME + " (name, world, x, y, z, locked, loot) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    public CompletableFuture<Void> saveChest(String name, String world, int x, int y, int z, boolean locked, byte[] loot) {
+        return saveChest(new ChestData(nextChestId(), ChestData.newNonce(), name, world, x, y, z, locked, loot));
+    }
 
-        if(getChest(name).isPresent()) {
-            return;
-        }
+    /**
+     * Queue a new chest to be saved to the database with the id and nonce it was created with.
+     *
+     * @param chest The chest, whose id comes from {@link #nextChestId()}.
+     * @return A future completed once the chest has been written.
+     */
+    public CompletableFuture<Void> saveChest(ChestData chest) {
+        return writeQueue.insert(chest);
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, world);
-            pstmt.setInt(3, x);
-            pstmt.setInt(4, y);
-            pstmt.setInt(5, z);
-            pstmt.setBoolean(6, locked);
-            pstmt.setString(7, loot);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Insert a new chest, unless a chest with the same id, name or location already exists.
+     *
+     * @param chest The chest to insert.
+     * @return true if the chest was inserted, false if it conflicted with an existing chest.
+     * @throws SQLException If the chest could not be written.
+     */
+    synchronized boolean executeInsert(ChestData chest) throws SQLException {
+        PreparedStatement pstmt = statement(INSERT_SQL);
+        if (chest.getId() > 0) pstmt.setInt(1, chest.getId());
+        else pstmt.setNull(1, Types.INTEGER);
+        pstmt.setInt(2, chest.getNonce());
+        pstmt.setString(3, chest.getName());
+        pstmt.setString(4, chest.getWorld());
+        pstmt.setInt(5, chest.getX());
+        pstmt.setInt(6, chest.getY());
+        pstmt.setInt(7, chest.getZ());
+        pstmt.setBoolean(8, chest.isLocked());
+        pstmt.setBytes(9, chest.getLoot());
+        return pstmt.executeUpdate() > 0;
     }
 
     /**
-     * Update the loot of a chest in the database.
+     * Queue a loot update of a chest.
      *
      * @param name The chest name.
      * @param loot The new loot.
+     * @return A future completed once the loot has been written.
      */
-    public void updateChestLoot(String name, String loot) {
-        String updateSQL = "UPDATE " + TABLE_NAME + " SET loot = ? WHERE name = ?";
+    public CompletableFuture<Void> updateChestLoot(String name, byte[] loot) {
+        return writeQueue.updateLoot(name, loot);
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSQL)) {
-            pstmt.setString(1, loot);
-            pstmt.setString(2, name);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Queue the loot updates of several chests, written in a single transaction.
+     *
+     * @param loot The new loot by chest name.
+     * @return A future completed once every loot update has been written.
+     */
+    public CompletableFuture<Void> updateChestLoot(Map<String, byte[]> loot) {
+        return writeQueue.updateLoot(loot);
+    }
+
+    /**
+     * Write the loot of a chest.
+     *
+     * @param name The chest name.
+     * @param loot The new loot.
+     * @throws SQLException If the loot could not be written.
+     */
+    synchronized void executeLootUpdate(String name, byte[] loot) throws SQLException {
+        PreparedStatement pstmt = statement(UPDATE_LOOT_SQL);
+        pstmt.setBytes(1, loot);
+        pstmt.setString(2, name);
+        pstmt.executeUpdate();
     }
 
     /**
-     * Retrieve all chests from the database.
+     * Retrieve all chests from the database. The loot of every chest is loaded lazily.
      *
      * @return List of chests.
      */
     public List<ChestData> getAllChests() {
         List<ChestData> chests = new ArrayList<>();
-        String querySQL = "SELECT * FROM " + TABLE_NAME;
+        streamChests().forEach(chests::add);
+        return chests;
+    }
 
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(querySQL)) {
+    /**
+     * Iterate over the chests of the database without loading their loot, using the default page size.
+     *
+     * @return The chests, with their loot loaded on the first {@link ChestData#getLoot()} call.
+     */
+    public Iterable<ChestData> streamChests() {
+        return streamChests(PAGE_SIZE);
+    }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                String world = rs.getString("world");
-                int x = rs.getInt("x");
-                int y = rs.getInt("y");
-                int z = rs.getInt("z");
-                boolean locked = rs.getBoolean("locked");
-                String loot = rs.getString("loot");
-
-                chests.add(new ChestData(id, name, world, x, y, z, locked, loot));
+    /**
+     * Iterate over the chests of the database without loading their loot.
+     * Rows are read in pages ordered by id, each page starting after the last id of the previous one,
+     * so the database is only locked while a page is read.
+     *
+     * @param pageSize The number of rows read per page.
+     * @return The chests, with their loot loaded on the first {@link ChestData#getLoot()} call.
+     */
+    public Iterable<ChestData> streamChests(int pageSize) {
+        return () -> new Iterator<>() {
+            private final Deque<ChestData> page = new ArrayDeque<>();
+            private int lastId = 0;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (page.isEmpty() && !exhausted) {
+                    page.addAll(readMetadataPage(lastId, pageSize));
+                    exhausted = page.size() < pageSize;
+                    if (!page.isEmpty()) lastId = page.getLast().getId();
+                }
+                return !page.isEmpty();
             }
 
+            @Override
+            public ChestData next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return page.removeFirst();
+            }
+        };
+    }
+
+    private synchronized List<ChestData> readMetadataPage(int afterId, int limit) {
+        List<ChestData> chests = new ArrayList<>(limit);
+        try {
+            PreparedStatement pstmt = statement(SELECT_METADATA_PAGE_SQL);
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    chests.add(ChestData.lazy(rs.getInt("id"), rs.getInt("nonce"), rs.getString("name"), rs.getString("world"),
+                            rs.getInt("x"), rs.getInt("y"), rs.getInt("z"), rs.getBoolean("locked"), this::loadLoot));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("Unable to read chests after id " + afterId, e);
         }
-
         return chests;
     }
 
     /**
-     * Update the locked status of a chest.
+     * Read the loot of a chest. Rows that only have a legacy text loot are wrapped as in {@link #getChest(String)}.
+     * The read goes through the read connection, so it never waits for a write-behind flush.
+     *
+     * @param id The chest id.
+     * @return The loot, or null if the chest has none or no longer exists.
+     * @throws IllegalStateException If the loot could not be read.
+     */
+    public byte[] loadLoot(int id) {
+        synchronized (readLock) {
+            try {
+                PreparedStatement pstmt = readStatement(SELECT_LOOT_SQL);
+                pstmt.setInt(1, id);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return null;
+
+                    byte[] loot = rs.getBytes("loot_data");
+                    return loot != null ? loot : LootSerializer.fromLegacy(rs.getString("loot"));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Unable to load the loot of chest " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Queue an update of the locked status of a chest.
      *
-     * @param id     The chest ID.
+     * @param name   The chest name.
      * @param locked The new locked status.
+     * @return A future completed once the locked status has been written.
      */
-    public void updateChestLockStatus(int id, boolean locked) {
-        String updateSQL = "UPDATE " + TABLE_NAME + " SET locked = ? WHERE id = ?";
+    public CompletableFuture<Void> updateChestLockStatus(String name, boolean locked) {
+        return writeQueue.updateLockStatus(name, locked);
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSQL)) {
-            pstmt.setBoolean(1, locked);
-            pstmt.setInt(2, id);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Write the locked status of a chest.
+     *
+     * @param name   The chest name.
+     * @param locked The new locked status.
+     * @throws SQLException If the locked status could not be written.
+     */
+    synchronized void executeLockUpdate(String name, boolean locked) throws SQLException {
+        PreparedStatement pstmt = statement(UPDATE_LOCK_SQL);
+        pstmt.setBoolean(1, locked);
+        pstmt.setString(2, name);
+        pstmt.executeUpdate();
     }
 
     /**
      * Delete a chest from the database by its ID.
      *
      * @param id The chest ID.
+     * @throws SQLException If the chest could not be deleted.
      */
-    public void deleteChest(int id) {
-        String deleteSQL = "DELETE FROM " + TABLE_NAME + " WHERE id = ?";
+    public synchronized void deleteChest(int id) throws SQLException {
+        PreparedStatement pstmt = statement(DELETE_BY_ID_SQL);
+        pstmt.setInt(1, id);
+        pstmt.executeUpdate();
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Queue the deletion of a chest by its name.
+     *
+     * @param name The chest name.
+     * @return A future completed once the chest has been deleted.
+     */
+    public CompletableFuture<Void> deleteChestByName(String name) {
+        return writeQueue.delete(name);
+    }
+
+    /**
+     * Delete a chest by its name.
+     *
+     * @param name The chest name.
+     * @throws SQLException If the chest could not be deleted.
+     */
+    synchronized void executeDelete(String name) throws SQLException {
+        PreparedStatement pstmt = statement(DELETE_BY_NAME_SQL);
+        pstmt.setString(1, name);
+        pstmt.executeUpdate();
+    }
+
+    /**
+     * Retrieve a sample of encoded loot, used to train compression dictionaries.
+     * The sample is a run of consecutive rows starting at a random id, wrapping around to the lowest id,
+     * so it is read through the primary key instead of sorting the whole table.
+     *
+     * @param limit The maximum number of payloads.
+     * @return The encoded loot payloads.
+     */
+    public List<byte[]> sampleLoot(int limit) {
+        List<byte[]> samples = new ArrayList<>();
+
+        synchronized (readLock) {
+            try {
+                long minId, maxId;
+                try (ResultSet rs = readStatement(SELECT_ID_RANGE_SQL).executeQuery()) {
+                    if (!rs.next() || rs.getObject(1) == null) return samples;
+                    minId = rs.getLong(1);
+                    maxId = rs.getLong(2);
+                }
+
+                long start = minId + (long) (Math.random() * (maxId - minId + 1));
+                readLootSamples(start, maxId + 1, limit, samples);
+                readLootSamples(minId, start, limit, samples);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
         }
+
+        return samples;
     }
 
-    public void deleteChestByName(String name) {
-        String deleteSQL = "DELETE FROM " + TABLE_NAME + " WHERE name = ?";
+    private void readLootSamples(long fromId, long toId, int limit, List<byte[]> samples) throws SQLException {
+        if (samples.size() >= limit) return;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
-            pstmt.setString(1, name);
-            pstmt.executeUpdate();
+        PreparedStatement pstmt = readStatement(SAMPLE_LOOT_SQL);
+        pstmt.setLong(1, fromId);
+        pstmt.setLong(2, toId);
+        pstmt.setInt(3, limit - samples.size());
+
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                samples.add(rs.getBytes(1));
+            }
+        }
+    }
+
+    /**
+     * Retrieve every stored loot dictionary, oldest first.
+     *
+     * @return The dictionaries.
+     */
+    public synchronized List<byte[]> getLootDictionaries() {
+        List<byte[]> dictionaries = new ArrayList<>();
+
+        try (ResultSet rs = statement(SELECT_DICTIONARIES_SQL).executeQuery()) {
+            while (rs.next()) {
+                dictionaries.add(rs.getBytes(1));
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+
+        return dictionaries;
     }
 
     /**
-     * Close the database connection.
+     * Store a loot dictionary. Dictionaries are never deleted, since payloads compressed with them
+     * can only be decompressed while they exist.
+     *
+     * @param id         The dictionary id.
+     * @param dictionary The dictionary.
      */
-    public void close() {
+    public synchronized void saveLootDictionary(int id, byte[] dictionary) {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
+            PreparedStatement pstmt = statement(INSERT_DICTIONARY_SQL);
+            pstmt.setInt(1, id);
+            pstmt.setBytes(2, dictionary);
+            pstmt.setLong(3, System.currentTimeMillis());
+            pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    public Optional<ChestData> getChest(String chestName) {
-        String querySQL = "SELECT * FROM " + TABLE_NAME + " WHERE name = ?";
+    /**
+     * Run the given writes in a single transaction, rolling every one of them back if any fails.
+     *
+     * @param writes The writes to run.
+     * @throws SQLException If a write failed or the transaction could not be committed.
+     */
+    synchronized void transaction(Writes writes) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            writes.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Writes run by {@link #transaction(Writes)}.
+     */
+    @FunctionalInterface
+    interface Writes {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Check if a chest has writes that are queued or being flushed.
+     *
+     * @param name The chest name.
+     * @return True if the database may not hold the latest state of the chest yet.
+     */
+    public boolean hasPendingWrite(String name) {
+        return writeQueue != null && writeQueue.isPending(name);
+    }
+
+    /**
+     * Get the write-behind queue used by the mutators.
+     *
+     * @return The write queue.
+     */
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
 
-        try(PreparedStatement pstmt = connection.prepareStatement(querySQL)) {
+    /**
+     * Flush every pending write and close the database connection.
+     */
+    public void close() {
+        if (writeQueue != null) {
+            writeQueue.shutdown();
+        }
+
+        synchronized (this) {
+            for (PreparedStatement pstmt : statements.values()) {
+                try {
+                    pstmt.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            statements.clear();
+
+            try {
+                if (connection != null && !connection.isClosed()) {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (readLock) {
+            for (PreparedStatement pstmt : readStatements.values()) {
+                try {
+                    pstmt.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            readStatements.clear();
+
+            try {
+                if (readConnection != null && !readConnection.isClosed()) {
+                    readConnection.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public synchronized Optional<ChestData> getChest(String chestName) {
+        try {
+            PreparedStatement pstmt = statement(SELECT_BY_NAME_SQL);
             pstmt.setString(1, chestName);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                String world = rs.getString("world");
-                int x = rs.getInt("x");
-                int y = rs.getInt("y");
-                int z = rs.getInt("z");
-                boolean locked = rs.getBoolean("locked");
-                String loot = rs.getString("loot");
-
-                return Optional.of(new ChestData(id, name, world, x, y, z, locked, loot));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(readChest(rs));
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -212,19 +702,67 @@ public class SQLiteDatabase {
         return Optional.empty();
     }
 
+    /**
+     * Map the current row to a chest. Rows that only have a legacy text loot are wrapped so they
+     * decode as before and get rewritten in the binary format on their next loot update.
+     *
+     * @param rs The result set, positioned on a row.
+     * @return The chest.
+     * @throws SQLException If a column could not be read.
+     */
+    private ChestData readChest(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        int nonce = rs.getInt("nonce");
+        String name = rs.getString("name");
+        String world = rs.getString("world");
+        int x = rs.getInt("x");
+        int y = rs.getInt("y");
+        int z = rs.getInt("z");
+        boolean locked = rs.getBoolean("locked");
+        byte[] loot = rs.getBytes("loot_data");
+        if (loot == null) {
+            loot = LootSerializer.fromLegacy(rs.getString("loot"));
+        }
+
+        return new ChestData(id, nonce, name, world, x, y, z, locked, loot);
+    }
+
+    /**
+     * Connection pragmas applied when the database is opened.
+     *
+     * @param synchronous The synchronous mode, one of OFF, NORMAL, FULL or EXTRA.
+     * @param cacheSize   The page cache size, in pages if positive or in KiB if negative.
+     * @param mmapSize    The maximum number of bytes used for memory-mapped I/O, 0 to disable it.
+     */
+    public record Pragmas(String synchronous, int cacheSize, long mmapSize) {
+        public static final Pragmas DEFAULT = new Pragmas("NORMAL", -8192, 268435456L);
+
+        public Pragmas {
+            synchronous = synchronous.toUpperCase(Locale.ROOT);
+            if (!List.of("OFF", "NORMAL", "FULL", "EXTRA").contains(synchronous)) {
+                throw new IllegalArgumentException("Invalid synchronous mode: " + synchronous);
+            }
+        }
+    }
+
     /**
      * Data class for storing chest information.
      */
     public static class ChestData {
+        private static final SecureRandom NONCES = new SecureRandom();
+
         private final int id;
+        private final int nonce;
         private final String name;
         private final String world;
         private final int x, y, z;
         private final boolean locked;
-        private String loot;
+        private byte[] loot;
+        private IntFunction<byte[]> lootLoader;
 
-        public ChestData(int id, String name, String world, int x, int y, int z, boolean locked, String loot) {
+        public ChestData(int id, int nonce, String name, String world, int x, int y, int z, boolean locked, byte[] loot) {
             this.id = id;
+            this.nonce = nonce;
             this.name = name;
             this.world = world;
             this.x = x;
@@ -234,14 +772,65 @@ public class SQLiteDatabase {
             this.loot = loot;
         }
 
-        public ChestData(String name, String world, int x, int y, int z, boolean locked, String loot) {
+        public ChestData(int id, String name, String world, int x, int y, int z, boolean locked, byte[] loot) {
+            this(id, 0, name, world, x, y, z, locked, loot);
+        }
+
+        public ChestData(String name, String world, int x, int y, int z, boolean locked, byte[] loot) {
             this(-1, name, world, x, y, z, locked, loot);
         }
 
+        /**
+         * Copy a chest, sharing its loot or its pending loot loader.
+         *
+         * @param other The chest to copy.
+         */
+        protected ChestData(ChestData other) {
+            this(other.id, other.nonce, other.name, other.world, other.x, other.y, other.z, other.locked, null);
+            synchronized (other) {
+                this.loot = other.loot;
+                this.lootLoader = other.lootLoader;
+            }
+        }
+
+        /**
+         * Create a chest whose loot is only read when it is first needed.
+         *
+         * @param id         Chest id.
+         * @param nonce      Chest nonce.
+         * @param name       Chest name.
+         * @param world      World name.
+         * @param x          X-coordinate.
+         * @param y          Y-coordinate.
+         * @param z          Z-coordinate.
+         * @param locked     Whether the chest is locked.
+         * @param lootLoader Reads the loot of the chest from its id.
+         * @return The chest.
+         */
+        public static ChestData lazy(int id, int nonce, String name, String world, int x, int y, int z, boolean locked, IntFunction<byte[]> lootLoader) {
+            ChestData chest = new ChestData(id, nonce, name, world, x, y, z, locked, null);
+            chest.lootLoader = lootLoader;
+            return chest;
+        }
+
+        /**
+         * Generate a random nonce for a new chest. Keys carry it next to the id, so a key cannot be
+         * forged by guessing an id. The nonce is never 0, which marks chests created without one.
+         *
+         * @return The nonce.
+         */
+        public static int newNonce() {
+            return NONCES.nextInt() | 1;
+        }
+
         public int getId() {
             return id;
         }
 
+        public int getNonce() {
+            return nonce;
+        }
+
         public String getName() {
             return name;
         }
@@ -266,12 +855,41 @@ public class SQLiteDatabase {
             return locked;
         }
 
-        public String getLoot() {
+        /**
+         * Get the loot, reading it from the database on the first call if it was not loaded yet.
+         * Avoid calling it on the main thread for a chest whose loot is not loaded.
+         *
+         * @return The loot.
+         * @throws IllegalStateException If the loot could not be read.
+         */
+        public synchronized byte[] getLoot() {
+            if (lootLoader != null) {
+                loot = lootLoader.apply(id);
+                lootLoader = null;
+            }
             return loot;
         }
 
-        public void setLoot(String loot) {
+        public synchronized void setLoot(byte[] loot) {
             this.loot = loot;
+            this.lootLoader = null;
+        }
+
+        /**
+         * Drop the loaded loot, so it is read again on the next {@link #getLoot()} call.
+         * Only call it once the loot is saved; chests that were never given a database id keep their loot.
+         *
+         * @param lootLoader Reads the loot of the chest from its id.
+         */
+        public synchronized void releaseLoot(IntFunction<byte[]> lootLoader) {
+            if (this.lootLoader != null || id <= 0) return;
+
+            this.loot = null;
+            this.lootLoader = lootLoader;
+        }
+
+        public synchronized boolean isLootLoaded() {
+            return lootLoader == null;
         }
 
         public boolean isAtLocation(String name, int blockX, int blockY, int blockZ) {
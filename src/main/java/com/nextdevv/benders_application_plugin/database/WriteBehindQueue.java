@@ -0,0 +1,312 @@
+package com.nextdevv.benders_application_plugin.database;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind queue that applies chest mutations on a dedicated writer thread.
+ * <p>
+ * Pending writes are coalesced per chest name, so only the last loot and lock status written
+ * before a flush reach the database. Each flush applies every pending chest in a single transaction.
+ * Callers never wait for room in the queue: since writes are coalesced, it holds at most one entry per chest.
+ * If any write of a flush fails, the whole transaction is rolled back and the futures of every write in it fail.
+ * An insertion conflicting with an existing chest only fails the futures of its own chest, whose other writes are skipped.
+ */
+public class WriteBehindQueue {
+    private final SQLiteDatabase database;
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    private Set<String> flushing = Set.of();
+    private final Thread writer;
+    private boolean running = true;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    /**
+     * Creates and starts a new write-behind queue.
+     *
+     * @param database the database the writes are applied to
+     */
+    public WriteBehindQueue(SQLiteDatabase database) {
+        this.database = database;
+        this.writer = new Thread(this::run, "MysticChests-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the insertion of a new chest.
+     *
+     * @param chest the chest to insert
+     * @return a future completed once the chest has been written
+     */
+    public CompletableFuture<Void> insert(SQLiteDatabase.ChestData chest) {
+        SQLiteDatabase.ChestData snapshot = new SQLiteDatabase.ChestData(chest.getId(), chest.getNonce(), chest.getName(), chest.getWorld(),
+                chest.getX(), chest.getY(), chest.getZ(), chest.isLocked(), chest.getLoot());
+        return enqueue(chest.getName(), write -> {
+            write.insert = snapshot;
+            write.locked = null;
+            write.loot = null;
+        });
+    }
+
+    /**
+     * Queues a loot update, replacing any loot update still pending for the same chest.
+     *
+     * @param name the chest name
+     * @param loot the new loot
+     * @return a future completed once the loot has been written
+     */
+    public CompletableFuture<Void> updateLoot(String name, byte[] loot) {
+        return enqueue(name, write -> write.loot = loot);
+    }
+
+    /**
+     * Queues the loot updates of several chests at once, so that they are flushed in the same transaction
+     * unless they do not fit in the queue.
+     *
+     * @param loot the new loot by chest name
+     * @return a future completed once every loot update has been written
+     */
+    public CompletableFuture<Void> updateLoot(Map<String, byte[]> loot) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(loot.size());
+        synchronized (pending) {
+            loot.forEach((name, payload) -> futures.add(updateLoot(name, payload)));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Queues a lock status update, replacing any lock update still pending for the same chest.
+     *
+     * @param name   the chest name
+     * @param locked the new lock status
+     * @return a future completed once the lock status has been written
+     */
+    public CompletableFuture<Void> updateLockStatus(String name, boolean locked) {
+        return enqueue(name, write -> write.locked = locked);
+    }
+
+    /**
+     * Queues the deletion of a chest, dropping every other write still pending for it.
+     *
+     * @param name the chest name
+     * @return a future completed once the chest has been deleted
+     */
+    public CompletableFuture<Void> delete(String name) {
+        return enqueue(name, write -> {
+            write.delete = true;
+            write.insert = null;
+            write.locked = null;
+            write.loot = null;
+        });
+    }
+
+    private CompletableFuture<Void> enqueue(String name, Consumer<PendingWrite> merge) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        synchronized (pending) {
+            if (!running) {
+                future.completeExceptionally(new IllegalStateException("Write queue is shut down"));
+                return future;
+            }
+
+            PendingWrite write = pending.get(name);
+            if (write == null) {
+                write = new PendingWrite(name);
+                pending.put(name, write);
+            } else {
+                coalesced.incrementAndGet();
+            }
+
+            merge.accept(write);
+            write.futures.add(future);
+            pending.notifyAll();
+        }
+
+        return future;
+    }
+
+    private void run() {
+        while (true) {
+            List<PendingWrite> batch;
+
+            synchronized (pending) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+
+                if (pending.isEmpty()) return;
+
+                batch = new ArrayList<>(pending.values());
+                flushing = Set.copyOf(pending.keySet());
+                pending.clear();
+            }
+
+            flush(batch);
+
+            synchronized (pending) {
+                flushing = Set.of();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        Set<PendingWrite> rejected = new HashSet<>();
+
+        try {
+            database.transaction(() -> {
+                for (PendingWrite write : batch) {
+                    if (write.delete) database.executeDelete(write.name);
+                    if (write.insert != null && !database.executeInsert(write.insert)) {
+                        // The name or location is taken, so the other writes would land on the existing chest
+                        rejected.add(write);
+                        continue;
+                    }
+                    if (write.locked != null) database.executeLockUpdate(write.name, write.locked);
+                    if (write.loot != null) database.executeLootUpdate(write.name, write.loot);
+                }
+            });
+
+            batch.forEach(write -> write.futures.forEach(future -> {
+                if (rejected.contains(write)) {
+                    future.completeExceptionally(new IllegalStateException("Chest " + write.name + " conflicts with an existing chest"));
+                } else {
+                    future.complete(null);
+                }
+            }));
+        } catch (Exception e) {
+            e.printStackTrace();
+            batch.forEach(write -> write.futures.forEach(future -> future.completeExceptionally(e)));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) maxFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        flushes.incrementAndGet();
+        writes.addAndGet(batch.size());
+    }
+
+    /**
+     * Stops accepting writes and waits for every pending write to be flushed.
+     */
+    public void shutdown() {
+        synchronized (pending) {
+            running = false;
+            pending.notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks if a chest has writes waiting to be flushed or in the flush running now.
+     *
+     * @param name the chest name
+     * @return true if the chest has unflushed writes
+     */
+    public boolean isPending(String name) {
+        synchronized (pending) {
+            return pending.containsKey(name) || flushing.contains(name);
+        }
+    }
+
+    /**
+     * Gets the number of chests with writes waiting to be flushed.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the number of flushed transactions.
+     *
+     * @return the flush count
+     */
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Gets the number of chest writes applied to the database.
+     *
+     * @return the write count
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    /**
+     * Gets the number of writes merged into a write already pending for the same chest.
+     *
+     * @return the coalesced write count
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Gets the duration of the last flush.
+     *
+     * @return the last flush latency in milliseconds
+     */
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    /**
+     * Gets the duration of the slowest flush.
+     *
+     * @return the maximum flush latency in milliseconds
+     */
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / 1_000_000.0;
+    }
+
+    /**
+     * Gets the average duration of a flush.
+     *
+     * @return the average flush latency in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / 1_000_000.0 / count;
+    }
+
+    private static class PendingWrite {
+        private final String name;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+        private boolean delete;
+        private SQLiteDatabase.ChestData insert;
+        private Boolean locked;
+        private byte[] loot;
+
+        private PendingWrite(String name) {
+            this.name = name;
+        }
+    }
+}
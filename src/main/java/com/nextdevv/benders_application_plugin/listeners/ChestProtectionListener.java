@@ -0,0 +1,73 @@
+package com.nextdevv.benders_application_plugin.listeners;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.objects.ChestRegistry;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.DoubleChestInventory;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Listener to keep explosions, pistons and hoppers away from the mystic chests
+ */
+public class ChestProtectionListener implements Listener {
+    private final ChestRegistry registry;
+
+    public ChestProtectionListener(MysticChests plugin) {
+        this.registry = plugin.getChestRegistry();
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        registry.removeChests(event.getLocation().getWorld(), event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        registry.removeChests(event.getBlock().getWorld(), event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        if (registry.containsAny(event.getBlock().getWorld(), event.getBlocks())) event.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        if (registry.containsAny(event.getBlock().getWorld(), event.getBlocks())) event.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        if (isChest(event.getSource()) || isChest(event.getDestination())) event.setCancelled(true);
+    }
+
+    private boolean isChest(Inventory inventory) {
+        // Resolving the location is the costly part, so skip it while no chest can be next to a hopper
+        if (inventory.getType() != InventoryType.CHEST || !registry.hasLoadedChests()) return false;
+
+        Location location = inventory.getLocation();
+        if (location == null) return false;
+
+        World world = location.getWorld();
+        if (world == null) return false;
+
+        // The location of a double chest is the midpoint between its halves, so check the block on each side of it
+        if (inventory instanceof DoubleChestInventory) {
+            int y = location.getBlockY();
+            return registry.contains(world, (int) Math.floor(location.getX()), y, (int) Math.floor(location.getZ()))
+                    || registry.contains(world, (int) Math.ceil(location.getX()), y, (int) Math.ceil(location.getZ()));
+        }
+
+        return registry.contains(world, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+}
@@ -0,0 +1,39 @@
+package com.nextdevv.benders_application_plugin.listeners;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Listener to keep track of which chest buckets are in loaded chunks and to release the loot of unloaded chests
+ */
+public class ChunkListener implements Listener {
+    private final MysticChests plugin;
+
+    public ChunkListener(MysticChests plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        plugin.getChestRegistry().chunkLoaded(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.getChestRegistry().chunkUnloaded(event.getChunk()).forEach(plugin::releaseLoot);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        String world = event.getWorld().getName();
+        plugin.getChestRegistry().worldUnloaded(world);
+        plugin.getChests().values().stream()
+                .filter(chest -> chest.getWorld().equals(world))
+                .forEach(plugin::releaseLoot);
+    }
+}
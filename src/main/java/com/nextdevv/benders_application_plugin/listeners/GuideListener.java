@@ -0,0 +1,31 @@
+package com.nextdevv.benders_application_plugin.listeners;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener to stop the guides of players leaving the server or the world of the chests they follow,
+ * and to drop the guide items of players leaving the server
+ */
+public class GuideListener implements Listener {
+    private final MysticChests plugin;
+
+    public GuideListener(MysticChests plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getGuideService().stopAll(event.getPlayer().getUniqueId());
+        plugin.getGuideItems().removeAll(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getGuideService().stopOutside(event.getPlayer().getUniqueId(), event.getPlayer().getWorld().getName());
+    }
+}
@@ -0,0 +1,40 @@
+package com.nextdevv.benders_application_plugin.listeners;
+
+import com.nextdevv.benders_application_plugin.objects.MysticChestHolder;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Listener to track which mystic chest inventories were changed by their viewers
+ */
+public class InventoryClickListener implements Listener {
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!(top.getHolder() instanceof MysticChestHolder holder)) return;
+
+        if (event.getClickedInventory() == top || event.isShiftClick()
+                || event.getAction() == InventoryAction.COLLECT_TO_CURSOR) {
+            holder.markModified();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        Inventory top = event.getView().getTopInventory();
+        if (!(top.getHolder() instanceof MysticChestHolder holder)) return;
+
+        int size = top.getSize();
+        for (int slot : event.getRawSlots()) {
+            if (slot < size) {
+                holder.markModified();
+                return;
+            }
+        }
+    }
+}
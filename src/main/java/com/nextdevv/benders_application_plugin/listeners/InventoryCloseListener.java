@@ -1,33 +1,86 @@
 package com.nextdevv.benders_application_plugin.listeners;
 
-import com.nextdevv.benders_application_plugin.MysticChests;
 import com.nextdevv.benders_application_plugin.objects.Callback;
+import com.nextdevv.benders_application_plugin.objects.MysticChestHolder;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.Inventory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Listener to handle when an inventory is closed
+ * <p>
+ * Each player has at most one open session, tied to the {@link MysticChestHolder} inventory it was
+ * registered for, so a close event runs the callback of that player's session only.
  */
 public class InventoryCloseListener implements Listener {
-    private List<Callback> callbacks = new ArrayList<>();
+    private final Map<UUID, Session> sessions = new HashMap<>();
 
     /**
-     * Add a callback to be executed when the inventory is closed
+     * Add a callback to be executed when the player closes the given inventory.
+     * Any session the player still had open is replaced.
+     * @param player The player viewing the inventory
+     * @param inventory The inventory the callback belongs to
      * @param callback The callback to be executed
      * @return The callback
      */
-    public Callback addCallback(Callback callback) {
-        callbacks.add(callback);
+    public Callback addCallback(HumanEntity player, Inventory inventory, Callback callback) {
+        sessions.put(player.getUniqueId(), new Session(inventory, callback, System.currentTimeMillis()));
         return callback;
     }
 
+    /**
+     * Drop the sessions older than the given age whose player is offline or no longer viewing the inventory
+     * @param maxAgeMillis The age after which a session is checked
+     * @return The number of expired sessions
+     */
+    public int expireSessions(long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        int before = sessions.size();
+        sessions.entrySet().removeIf(entry -> {
+            Session session = entry.getValue();
+            if (now - session.openedAt() < maxAgeMillis) return false;
+
+            Player player = Bukkit.getPlayer(entry.getKey());
+            return player == null || player.getOpenInventory().getTopInventory() != session.inventory();
+        });
+        return before - sessions.size();
+    }
+
+    /**
+     * Get the number of open sessions
+     * @return The session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
     @EventHandler
     public void onInventoryCloseListener(InventoryCloseEvent event) {
-        callbacks.forEach(callback -> callback.execute(event));
-        callbacks.clear();
+        if (!(event.getInventory().getHolder() instanceof MysticChestHolder)) return;
+
+        UUID uuid = event.getPlayer().getUniqueId();
+        Session session = sessions.get(uuid);
+        if (session == null || session.inventory() != event.getInventory()) return;
+
+        sessions.remove(uuid);
+        session.callback().execute(event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    private record Session(Inventory inventory, Callback callback, long openedAt) {
     }
 }
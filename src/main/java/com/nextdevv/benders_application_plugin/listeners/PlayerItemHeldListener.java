@@ -0,0 +1,28 @@
+package com.nextdevv.benders_application_plugin.listeners;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.objects.ChestKeys;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Listener to load and decode the loot of a chest as soon as a player starts holding its key
+ */
+public class PlayerItemHeldListener implements Listener {
+    private final MysticChests plugin;
+
+    public PlayerItemHeldListener(MysticChests plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerItemHeld(PlayerItemHeldEvent event) {
+        ItemStack item = event.getPlayer().getInventory().getItem(event.getNewSlot());
+        SQLiteDatabase.ChestData chest = ChestKeys.resolve(plugin.getChests(), item);
+        if (chest != null) plugin.getLootPipeline().prefetch(chest);
+    }
+}
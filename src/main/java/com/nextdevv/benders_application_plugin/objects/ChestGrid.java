@@ -0,0 +1,250 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Per-world uniform grid over the chest positions, answering nearest-neighbour and radius queries.
+ * <p>
+ * Cells are {@value #CELL_SIZE} blocks wide on x and z. A nearest query searches rings of cells around the
+ * query point and stops as soon as no unvisited cell can hold a closer chest. When the rings would visit more
+ * cells than the world has, it scans the occupied cells instead, so a query is never slower than a scan.
+ * Distances are measured to the block centres. Only accessed from the main thread.
+ */
+public class ChestGrid {
+    public static final int CELL_SIZE = 64;
+    private static final int CELL_SHIFT = 6;
+
+    private final Map<String, WorldGrid> worlds = new HashMap<>();
+
+    /**
+     * Adds a chest to the grid.
+     *
+     * @param chest the chest to add
+     */
+    public void add(SQLiteDatabase.ChestData chest) {
+        WorldGrid grid = worlds.computeIfAbsent(chest.getWorld(), world -> new WorldGrid());
+        int cellX = chest.getX() >> CELL_SHIFT;
+        int cellZ = chest.getZ() >> CELL_SHIFT;
+
+        List<SQLiteDatabase.ChestData> cell = grid.cells.computeIfAbsent(ChestRegistry.chunkKey(cellX, cellZ), key -> new ArrayList<>(2));
+        if (cell.contains(chest)) return;
+
+        cell.add(chest);
+        grid.size++;
+        grid.minCellX = Math.min(grid.minCellX, cellX);
+        grid.maxCellX = Math.max(grid.maxCellX, cellX);
+        grid.minCellZ = Math.min(grid.minCellZ, cellZ);
+        grid.maxCellZ = Math.max(grid.maxCellZ, cellZ);
+    }
+
+    /**
+     * Removes a chest from the grid.
+     *
+     * @param chest the chest to remove
+     */
+    public void remove(SQLiteDatabase.ChestData chest) {
+        WorldGrid grid = worlds.get(chest.getWorld());
+        if (grid == null) return;
+
+        long key = ChestRegistry.chunkKey(chest.getX() >> CELL_SHIFT, chest.getZ() >> CELL_SHIFT);
+        List<SQLiteDatabase.ChestData> cell = grid.cells.get(key);
+        if (cell == null || !cell.remove(chest)) return;
+
+        grid.size--;
+        if (cell.isEmpty()) grid.cells.remove(key);
+        if (grid.size == 0) worlds.remove(chest.getWorld());
+    }
+
+    /**
+     * Finds the chest closest to a point.
+     *
+     * @param world  the world name
+     * @param x      the x-coordinate
+     * @param y      the y-coordinate
+     * @param z      the z-coordinate
+     * @param filter the chests to consider
+     * @return the closest matching chest, or null if there is none
+     */
+    public SQLiteDatabase.ChestData nearest(String world, double x, double y, double z, Predicate<SQLiteDatabase.ChestData> filter) {
+        List<SQLiteDatabase.ChestData> nearest = nearest(world, x, y, z, 1, filter);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    /**
+     * Finds the chests closest to a point.
+     *
+     * @param world  the world name
+     * @param x      the x-coordinate
+     * @param y      the y-coordinate
+     * @param z      the z-coordinate
+     * @param k      the maximum number of chests
+     * @param filter the chests to consider
+     * @return at most k matching chests, closest first
+     */
+    public List<SQLiteDatabase.ChestData> nearest(String world, double x, double y, double z, int k, Predicate<SQLiteDatabase.ChestData> filter) {
+        WorldGrid grid = worlds.get(world);
+        if (grid == null || k <= 0) return List.of();
+
+        Candidates candidates = new Candidates(x, y, z, k);
+        int originX = (int) Math.floor(x) >> CELL_SHIFT;
+        int originZ = (int) Math.floor(z) >> CELL_SHIFT;
+        int maxRing = Math.max(
+                Math.max(Math.abs(grid.minCellX - originX), Math.abs(grid.maxCellX - originX)),
+                Math.max(Math.abs(grid.minCellZ - originZ), Math.abs(grid.maxCellZ - originZ)));
+
+        long visited = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            visited += ring == 0 ? 1 : 8L * ring;
+            if (visited > grid.cells.size()) {
+                candidates.clear();
+                grid.cells.values().forEach(cell -> candidates.offerAll(cell, filter));
+                break;
+            }
+
+            if (ring == 0) {
+                candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(originX, originZ)), filter);
+            } else {
+                for (int i = -ring; i <= ring; i++) {
+                    candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(originX + i, originZ - ring)), filter);
+                    candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(originX + i, originZ + ring)), filter);
+                }
+                for (int i = -ring + 1; i < ring; i++) {
+                    candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(originX - ring, originZ + i)), filter);
+                    candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(originX + ring, originZ + i)), filter);
+                }
+            }
+
+            double reach = (double) ring * CELL_SIZE;
+            if (candidates.isFull() && candidates.worstDistanceSquared() <= reach * reach) break;
+        }
+
+        return candidates.sorted();
+    }
+
+    /**
+     * Finds the chests within a radius of a point.
+     *
+     * @param world  the world name
+     * @param x      the x-coordinate
+     * @param y      the y-coordinate
+     * @param z      the z-coordinate
+     * @param radius the radius in blocks
+     * @param filter the chests to consider
+     * @return the matching chests, closest first
+     */
+    public List<SQLiteDatabase.ChestData> withinRadius(String world, double x, double y, double z, double radius, Predicate<SQLiteDatabase.ChestData> filter) {
+        WorldGrid grid = worlds.get(world);
+        if (grid == null || radius < 0) return List.of();
+
+        Candidates candidates = new Candidates(x, y, z, Integer.MAX_VALUE);
+        double radiusSquared = radius * radius;
+        Predicate<SQLiteDatabase.ChestData> inRange = chest -> candidates.distanceSquared(chest) <= radiusSquared && filter.test(chest);
+
+        int minX = Math.max(grid.minCellX, (int) Math.floor(x - radius) >> CELL_SHIFT);
+        int maxX = Math.min(grid.maxCellX, (int) Math.floor(x + radius) >> CELL_SHIFT);
+        int minZ = Math.max(grid.minCellZ, (int) Math.floor(z - radius) >> CELL_SHIFT);
+        int maxZ = Math.min(grid.maxCellZ, (int) Math.floor(z + radius) >> CELL_SHIFT);
+        if (minX > maxX || minZ > maxZ) return List.of();
+
+        if ((long) (maxX - minX + 1) * (maxZ - minZ + 1) > grid.cells.size()) {
+            grid.cells.values().forEach(cell -> candidates.offerAll(cell, inRange));
+        } else {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    candidates.offerAll(grid.cells.get(ChestRegistry.chunkKey(cellX, cellZ)), inRange);
+                }
+            }
+        }
+
+        return candidates.sorted();
+    }
+
+    /**
+     * Gets the number of chests in a world.
+     *
+     * @param world the world name
+     * @return the chest count
+     */
+    public int size(String world) {
+        WorldGrid grid = worlds.get(world);
+        return grid == null ? 0 : grid.size;
+    }
+
+    /**
+     * Removes every chest from the grid.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    private static class WorldGrid {
+        private final Map<Long, List<SQLiteDatabase.ChestData>> cells = new HashMap<>();
+        private int size;
+        private int minCellX = Integer.MAX_VALUE, maxCellX = Integer.MIN_VALUE;
+        private int minCellZ = Integer.MAX_VALUE, maxCellZ = Integer.MIN_VALUE;
+    }
+
+    /**
+     * The k best chests found so far, kept in a max-heap on the distance so the worst one is replaced first.
+     */
+    private static class Candidates {
+        private final double x, y, z;
+        private final int k;
+        private final PriorityQueue<Candidate> heap;
+
+        private Candidates(double x, double y, double z, int k) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.k = k;
+            this.heap = new PriorityQueue<>(Math.min(k, 16), Comparator.comparingDouble(Candidate::distanceSquared).reversed());
+        }
+
+        private void offerAll(List<SQLiteDatabase.ChestData> cell, Predicate<SQLiteDatabase.ChestData> filter) {
+            if (cell == null) return;
+
+            for (SQLiteDatabase.ChestData chest : cell) {
+                double distanceSquared = distanceSquared(chest);
+                if (isFull() && distanceSquared >= heap.peek().distanceSquared()) continue;
+                if (!filter.test(chest)) continue;
+
+                heap.add(new Candidate(chest, distanceSquared));
+                if (heap.size() > k) heap.poll();
+            }
+        }
+
+        private double distanceSquared(SQLiteDatabase.ChestData chest) {
+            double dx = chest.getX() + 0.5 - x;
+            double dy = chest.getY() + 0.5 - y;
+            double dz = chest.getZ() + 0.5 - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private boolean isFull() {
+            return heap.size() >= k;
+        }
+
+        private double worstDistanceSquared() {
+            return heap.isEmpty() ? Double.POSITIVE_INFINITY : heap.peek().distanceSquared();
+        }
+
+        private void clear() {
+            heap.clear();
+        }
+
+        private List<SQLiteDatabase.ChestData> sorted() {
+            Candidate[] candidates = heap.toArray(new Candidate[0]);
+            Arrays.sort(candidates, Comparator.comparingDouble(Candidate::distanceSquared));
+
+            List<SQLiteDatabase.ChestData> chests = new ArrayList<>(candidates.length);
+            for (Candidate candidate : candidates) chests.add(candidate.chest());
+            return chests;
+        }
+    }
+
+    private record Candidate(SQLiteDatabase.ChestData chest, double distanceSquared) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The persistent data written on mystic chest keys.
+ * <p>
+ * A key stores the chest id and nonce as an int array, so using it is a single lookup, and it keeps working
+ * if the chest is renamed or moved. A deleted chest's id is never reused, so its keys stop resolving.
+ * Keys handed out by older versions identify the chest by its name and position instead; they are still accepted.
+ */
+public final class ChestKeys {
+    /**
+     * The namespace of the keys, matching the plugin name so keys written by older versions keep resolving.
+     */
+    public static final String NAMESPACE = "benders_application_plugin";
+
+    public static final NamespacedKey ID = new NamespacedKey(NAMESPACE, "mystic-chest-id");
+    public static final NamespacedKey NAME = new NamespacedKey(NAMESPACE, "mystic-chest-name");
+    public static final NamespacedKey POSITION = new NamespacedKey(NAMESPACE, "mystic-chest-position");
+    public static final NamespacedKey LEGACY_LOCATION = new NamespacedKey(NAMESPACE, "mystic-chest-key");
+
+    private ChestKeys() {
+    }
+
+    /**
+     * Writes the key data of a chest. The name is only kept for display.
+     *
+     * @param container the container of the key item
+     * @param chest     the chest the key opens
+     */
+    public static void write(PersistentDataContainer container, SQLiteDatabase.ChestData chest) {
+        container.set(ID, PersistentDataType.INTEGER_ARRAY, new int[]{chest.getId(), chest.getNonce()});
+        container.set(NAME, PersistentDataType.STRING, chest.getName());
+    }
+
+    /**
+     * Checks if an item could be a chest key without copying its meta.
+     *
+     * @param item the item to check, may be null
+     * @return true if the item is a tripwire hook with meta
+     */
+    public static boolean isCandidate(ItemStack item) {
+        return item != null && item.getType() == Material.TRIPWIRE_HOOK && item.hasItemMeta();
+    }
+
+    /**
+     * Checks if a container holds key data.
+     *
+     * @param container the container to check
+     * @return true if the container belongs to a chest key
+     */
+    public static boolean isKey(PersistentDataContainer container) {
+        if (container.has(ID, PersistentDataType.INTEGER_ARRAY)) return true;
+        return container.has(NAME, PersistentDataType.STRING)
+                && (container.has(POSITION, PersistentDataType.INTEGER_ARRAY) || container.has(LEGACY_LOCATION, PersistentDataType.STRING));
+    }
+
+    /**
+     * Gets the chest name stored on a key, which may be outdated.
+     *
+     * @param container the container of the key item
+     * @return the chest name, or null if the container is not a key
+     */
+    public static String getName(PersistentDataContainer container) {
+        return container.get(NAME, PersistentDataType.STRING);
+    }
+
+    /**
+     * Resolves the chest an item is the key of.
+     *
+     * @param chests the chest store
+     * @param item   the item, may be null
+     * @return the chest, or null if the item is not a key or its chest no longer exists
+     */
+    public static SQLiteDatabase.ChestData resolve(ChestStore chests, ItemStack item) {
+        if (!isCandidate(item)) return null;
+
+        ItemMeta meta = item.getItemMeta();
+        return meta == null ? null : resolve(chests, meta.getPersistentDataContainer());
+    }
+
+    /**
+     * Resolves the chest a key opens.
+     *
+     * @param chests    the chest store
+     * @param container the container of the key item
+     * @return the chest, or null if the container is not a key or its chest no longer exists
+     */
+    public static SQLiteDatabase.ChestData resolve(ChestStore chests, PersistentDataContainer container) {
+        int[] id = container.get(ID, PersistentDataType.INTEGER_ARRAY);
+        if (id != null) {
+            if (id.length != 2) return null;
+
+            SQLiteDatabase.ChestData chest = chests.getById(id[0]);
+            return chest != null && chest.getNonce() == id[1] ? chest : null;
+        }
+
+        String name = getName(container);
+        if (name == null) return null;
+
+        SQLiteDatabase.ChestData chest = chests.get(name);
+        if (chest == null) return null;
+
+        int[] position = container.get(POSITION, PersistentDataType.INTEGER_ARRAY);
+        if (position != null) {
+            return position.length == 3 && chest.getX() == position[0] && chest.getY() == position[1] && chest.getZ() == position[2] ? chest : null;
+        }
+
+        String location = container.get(LEGACY_LOCATION, PersistentDataType.STRING);
+        return location != null && matchesLegacy(location, chest) ? chest : null;
+    }
+
+    /**
+     * Resolves the chests of every key among the given items.
+     *
+     * @param chests the chest store
+     * @param items  the items, such as a player inventory
+     * @return the chests the items are keys of, in item order
+     */
+    public static Set<SQLiteDatabase.ChestData> collect(ChestStore chests, Iterable<ItemStack> items) {
+        Set<SQLiteDatabase.ChestData> keys = new LinkedHashSet<>();
+        for (ItemStack item : items) {
+            SQLiteDatabase.ChestData chest = resolve(chests, item);
+            if (chest != null) keys.add(chest);
+        }
+        return keys;
+    }
+
+    /**
+     * Matches a legacy {@code world:x:y:z} location against a chest without splitting the string.
+     */
+    private static boolean matchesLegacy(String location, SQLiteDatabase.ChestData chest) {
+        int end = location.length();
+        int zStart = location.lastIndexOf(':') + 1;
+        if (zStart <= 0) return false;
+        int yStart = location.lastIndexOf(':', zStart - 2) + 1;
+        if (yStart <= 0) return false;
+        int xStart = location.lastIndexOf(':', yStart - 2) + 1;
+        if (xStart <= 0) return false;
+
+        try {
+            return location.regionMatches(0, chest.getWorld(), 0, xStart - 1) && chest.getWorld().length() == xStart - 1
+                    && Integer.parseInt(location, xStart, yStart - 1, 10) == chest.getX()
+                    && Integer.parseInt(location, yStart, zStart - 1, 10) == chest.getY()
+                    && Integer.parseInt(location, zStart, end, 10) == chest.getZ();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Index of the mystic chests by world, chunk and packed block position. Position lookups do not allocate,
+ * so they can be used from high frequency events.
+ * <p>
+ * Chests are bucketed by chunk, and each bucket tracks whether its chunk is loaded so that
+ * callers can restrict their work to the chests in the loaded area.
+ */
+public class ChestRegistry {
+    private final Map<String, WorldIndex> worlds = new HashMap<>();
+
+    /**
+     * Adds a chest to the index.
+     *
+     * @param chest the chest to add
+     */
+    public void add(SQLiteDatabase.ChestData chest) {
+        WorldIndex index = worlds.computeIfAbsent(chest.getWorld(), world -> new WorldIndex());
+        SQLiteDatabase.ChestData previous = index.positions.put(pack(chest.getX(), chest.getY(), chest.getZ()), chest);
+        if (previous == chest) return;
+
+        long chunkKey = chunkKey(chest.getX() >> 4, chest.getZ() >> 4);
+        Bucket bucket = index.chunks.get(chunkKey);
+        if (bucket == null) {
+            bucket = new Bucket();
+            index.chunks.put(chunkKey, bucket);
+
+            World world = Bukkit.getWorld(chest.getWorld());
+            if (world != null && world.isChunkLoaded(chest.getX() >> 4, chest.getZ() >> 4))
+                index.loaded.put(chunkKey, bucket);
+        }
+
+        if (previous != null) bucket.chests.remove(previous);
+        bucket.chests.add(chest);
+    }
+
+    /**
+     * Removes a chest from the index.
+     *
+     * @param chest the chest to remove
+     */
+    public void remove(SQLiteDatabase.ChestData chest) {
+        WorldIndex index = worlds.get(chest.getWorld());
+        if (index == null) return;
+        if (!index.positions.remove(pack(chest.getX(), chest.getY(), chest.getZ()), chest)) return;
+
+        long chunkKey = chunkKey(chest.getX() >> 4, chest.getZ() >> 4);
+        Bucket bucket = index.chunks.get(chunkKey);
+        if (bucket != null) {
+            bucket.chests.remove(chest);
+            if (bucket.chests.isEmpty()) {
+                index.chunks.remove(chunkKey);
+                index.loaded.remove(chunkKey);
+            }
+        }
+
+        if (index.positions.isEmpty()) worlds.remove(chest.getWorld());
+    }
+
+    /**
+     * Gets the chest at the given position.
+     *
+     * @param world the world name
+     * @param x     the block x-coordinate
+     * @param y     the block y-coordinate
+     * @param z     the block z-coordinate
+     * @return the chest at the position, or null if there is none
+     */
+    public SQLiteDatabase.ChestData get(String world, int x, int y, int z) {
+        WorldIndex index = worlds.get(world);
+        return index == null ? null : index.positions.get(pack(x, y, z));
+    }
+
+    /**
+     * Gets the chest placed at the given block.
+     *
+     * @param block the block
+     * @return the chest at the block, or null if there is none
+     */
+    public SQLiteDatabase.ChestData get(Block block) {
+        return get(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Checks if a chest is placed at the given block.
+     *
+     * @param block the block
+     * @return true if the block is a mystic chest, false otherwise
+     */
+    public boolean contains(Block block) {
+        return get(block) != null;
+    }
+
+    /**
+     * Checks if a chest is placed at the given position, without allocating.
+     *
+     * @param world the world
+     * @param x     the block x-coordinate
+     * @param y     the block y-coordinate
+     * @param z     the block z-coordinate
+     * @return true if the position holds a mystic chest, false otherwise
+     */
+    public boolean contains(World world, int x, int y, int z) {
+        WorldIndex index = worlds.get(world.getName());
+        return index != null && index.positions.get(pack(x, y, z)) != null;
+    }
+
+    /**
+     * Removes every chest block from a list of blocks of the same world in a single pass.
+     *
+     * @param world  the world of the blocks
+     * @param blocks the blocks, changed in place
+     * @return the number of chest blocks removed
+     */
+    public int removeChests(World world, List<Block> blocks) {
+        WorldIndex index = worlds.get(world.getName());
+        if (index == null || blocks.isEmpty()) return 0;
+
+        int size = blocks.size();
+        blocks.removeIf(block -> index.positions.get(pack(block.getX(), block.getY(), block.getZ())) != null);
+        return size - blocks.size();
+    }
+
+    /**
+     * Checks if a list of blocks of the same world contains a chest block.
+     *
+     * @param world  the world of the blocks
+     * @param blocks the blocks
+     * @return true if any block is a mystic chest, false otherwise
+     */
+    public boolean containsAny(World world, List<Block> blocks) {
+        WorldIndex index = worlds.get(world.getName());
+        if (index == null) return false;
+
+        for (int i = 0, size = blocks.size(); i < size; i++) {
+            Block block = blocks.get(i);
+            if (index.positions.get(pack(block.getX(), block.getY(), block.getZ())) != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the chests placed in the given chunk.
+     *
+     * @param world  the world name
+     * @param chunkX the chunk x-coordinate
+     * @param chunkZ the chunk z-coordinate
+     * @return the chests in the chunk, empty if there are none
+     */
+    public List<SQLiteDatabase.ChestData> getChunk(String world, int chunkX, int chunkZ) {
+        WorldIndex index = worlds.get(world);
+        if (index == null) return List.of();
+
+        Bucket bucket = index.chunks.get(chunkKey(chunkX, chunkZ));
+        return bucket == null ? List.of() : Collections.unmodifiableList(bucket.chests);
+    }
+
+    /**
+     * Checks if the chunk holding the given chest is loaded.
+     *
+     * @param chest the chest
+     * @return true if the chest is in a loaded chunk, false otherwise
+     */
+    public boolean isLoaded(SQLiteDatabase.ChestData chest) {
+        WorldIndex index = worlds.get(chest.getWorld());
+        return index != null && index.loaded.containsKey(chunkKey(chest.getX() >> 4, chest.getZ() >> 4));
+    }
+
+    /**
+     * Marks a chunk as loaded.
+     *
+     * @param chunk the chunk that was loaded
+     * @return the chests in the chunk, empty if there are none
+     */
+    public List<SQLiteDatabase.ChestData> chunkLoaded(Chunk chunk) {
+        WorldIndex index = worlds.get(chunk.getWorld().getName());
+        if (index == null) return List.of();
+
+        long chunkKey = chunkKey(chunk.getX(), chunk.getZ());
+        Bucket bucket = index.chunks.get(chunkKey);
+        if (bucket == null) return List.of();
+
+        index.loaded.put(chunkKey, bucket);
+        return Collections.unmodifiableList(bucket.chests);
+    }
+
+    /**
+     * Marks a chunk as unloaded.
+     *
+     * @param chunk the chunk that was unloaded
+     * @return the chests in the chunk, empty if there are none
+     */
+    public List<SQLiteDatabase.ChestData> chunkUnloaded(Chunk chunk) {
+        WorldIndex index = worlds.get(chunk.getWorld().getName());
+        if (index == null) return List.of();
+
+        long chunkKey = chunkKey(chunk.getX(), chunk.getZ());
+        Bucket bucket = index.loaded.remove(chunkKey);
+        return bucket == null ? List.of() : Collections.unmodifiableList(bucket.chests);
+    }
+
+    /**
+     * Marks every chunk of a world as unloaded.
+     *
+     * @param world the world name
+     */
+    public void worldUnloaded(String world) {
+        WorldIndex index = worlds.get(world);
+        if (index != null) index.loaded.clear();
+    }
+
+    /**
+     * Runs the given action for every chest in a loaded chunk.
+     *
+     * @param action the action to run
+     */
+    public void forEachLoaded(Consumer<SQLiteDatabase.ChestData> action) {
+        for (WorldIndex index : worlds.values()) {
+            for (Bucket bucket : index.loaded.values()) {
+                bucket.chests.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Runs the given action for every chest in a loaded chunk of the given world.
+     *
+     * @param world  the world name
+     * @param action the action to run
+     */
+    public void forEachLoaded(String world, Consumer<SQLiteDatabase.ChestData> action) {
+        WorldIndex index = worlds.get(world);
+        if (index == null) return;
+
+        for (Bucket bucket : index.loaded.values()) {
+            bucket.chests.forEach(action);
+        }
+    }
+
+    /**
+     * Checks if any chest is in a loaded chunk.
+     *
+     * @return true if at least one chunk holding a chest is loaded, false otherwise
+     */
+    public boolean hasLoadedChests() {
+        for (WorldIndex index : worlds.values()) {
+            if (!index.loaded.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of chunks holding at least one chest that are currently loaded.
+     *
+     * @return the number of loaded chest chunks
+     */
+    public int getLoadedChunkCount() {
+        int count = 0;
+        for (WorldIndex index : worlds.values()) {
+            count += index.loaded.size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes every chest from the index.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Packs block coordinates into a single long, using 26 bits for x and z and 12 bits for y.
+     *
+     * @param x the block x-coordinate
+     * @param y the block y-coordinate
+     * @param z the block z-coordinate
+     * @return the packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Packs chunk coordinates into a single long.
+     *
+     * @param chunkX the chunk x-coordinate
+     * @param chunkZ the chunk z-coordinate
+     * @return the packed chunk key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static class WorldIndex {
+        private final PositionMap positions = new PositionMap();
+        private final Map<Long, Bucket> chunks = new HashMap<>();
+        private final Map<Long, Bucket> loaded = new HashMap<>();
+    }
+
+    private static class Bucket {
+        private final List<SQLiteDatabase.ChestData> chests = new ArrayList<>(1);
+    }
+
+    /**
+     * Open addressing map from packed positions to chests, so lookups neither box the key nor allocate.
+     * Uses linear probing and shifts entries back on removal instead of leaving tombstones.
+     */
+    private static class PositionMap {
+        private long[] keys = new long[16];
+        private SQLiteDatabase.ChestData[] values = new SQLiteDatabase.ChestData[16];
+        private int size;
+
+        private SQLiteDatabase.ChestData get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return values[slot];
+            }
+            return null;
+        }
+
+        private SQLiteDatabase.ChestData put(long key, SQLiteDatabase.ChestData value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            for (; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    SQLiteDatabase.ChestData previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+            }
+
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) resize(keys.length * 2);
+            return null;
+        }
+
+        private boolean remove(long key, SQLiteDatabase.ChestData value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            for (; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) break;
+            }
+            if (values[slot] != value || value == null) return false;
+
+            int free = slot;
+            for (int next = (free + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    free = next;
+                }
+            }
+            values[free] = null;
+            size--;
+            return true;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            SQLiteDatabase.ChestData[] oldValues = values;
+            keys = new long[capacity];
+            values = new SQLiteDatabase.ChestData[capacity];
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] == null) continue;
+
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe store of the mystic chests, indexed by name and by database id.
+ * <p>
+ * Lookups may be done from any thread, so async persistence and decode workers can resolve chests
+ * without touching the main thread. Changes are made from the main thread. Iteration is weakly
+ * consistent; use {@link #snapshot()} when a stable copy is needed.
+ */
+public class ChestStore {
+    private final Map<String, SQLiteDatabase.ChestData> byName = new ConcurrentHashMap<>();
+    private final Map<Integer, SQLiteDatabase.ChestData> byId = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a chest, replacing any chest with the same name.
+     *
+     * @param chest the chest to add
+     * @return the replaced chest, or null if there was none
+     */
+    public SQLiteDatabase.ChestData add(SQLiteDatabase.ChestData chest) {
+        SQLiteDatabase.ChestData previous = byName.put(chest.getName(), chest);
+        if (previous != null && previous.getId() >= 0) byId.remove(previous.getId(), previous);
+        if (chest.getId() >= 0) byId.put(chest.getId(), chest);
+        return previous;
+    }
+
+    /**
+     * Removes a chest by name.
+     *
+     * @param name the chest name
+     * @return the removed chest, or null if there was none
+     */
+    public SQLiteDatabase.ChestData remove(String name) {
+        SQLiteDatabase.ChestData chest = byName.remove(name);
+        if (chest != null && chest.getId() >= 0) byId.remove(chest.getId(), chest);
+        return chest;
+    }
+
+    /**
+     * Gets a chest by name.
+     *
+     * @param name the chest name
+     * @return the chest, or null if there is none
+     */
+    public SQLiteDatabase.ChestData get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Gets a chest by database id.
+     *
+     * @param id the chest id
+     * @return the chest, or null if there is none or it has not been assigned an id yet
+     */
+    public SQLiteDatabase.ChestData getById(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Checks if a chest with the given name exists.
+     *
+     * @param name the chest name
+     * @return true if the chest exists, false otherwise
+     */
+    public boolean contains(String name) {
+        return byName.containsKey(name);
+    }
+
+    /**
+     * Checks if the given chest is still the one stored under its name.
+     *
+     * @param chest the chest to check
+     * @return true if the chest is stored, false if it was removed or replaced
+     */
+    public boolean contains(SQLiteDatabase.ChestData chest) {
+        return byName.get(chest.getName()) == chest;
+    }
+
+    /**
+     * Gets the number of chests.
+     *
+     * @return the chest count
+     */
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * Gets a live, weakly consistent view of the chests.
+     *
+     * @return the chests
+     */
+    public Collection<SQLiteDatabase.ChestData> values() {
+        return Collections.unmodifiableCollection(byName.values());
+    }
+
+    /**
+     * Runs the given action for every chest.
+     *
+     * @param action the action to run
+     */
+    public void forEach(Consumer<SQLiteDatabase.ChestData> action) {
+        byName.values().forEach(action);
+    }
+
+    /**
+     * Copies the chests, for tasks that need a stable list while the store keeps changing.
+     *
+     * @return a copy of the chests
+     */
+    public List<SQLiteDatabase.ChestData> snapshot() {
+        return new ArrayList<>(byName.values());
+    }
+}
@@ -0,0 +1,189 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.items.MysticChestItemGui;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The guide items of every player, so a reopened guide window shows the same toggled items.
+ * <p>
+ * Each player keeps their items in two small parallel arrays, since players only hold a few keys. Players are
+ * dropped when they quit, when their items have not been used for the idle timeout, and least recently used
+ * first once the store holds more than the maximum number of players. A dropped player simply gets new items
+ * the next time they open the guide. Only accessed from the main thread.
+ */
+public class GuideItemStore {
+    private static final int PLAYER_OVERHEAD_BYTES = 96;
+    private static final int ITEM_BYTES = 64;
+
+    private final int maxPlayers;
+    private final long idleMillis;
+    private final LinkedHashMap<UUID, PlayerItems> players = new LinkedHashMap<>(16, 0.75f, true);
+    private long evictionCount;
+
+    /**
+     * Creates a new guide item store.
+     *
+     * @param maxPlayers the maximum number of players kept
+     * @param idleMillis how long the items of a player are kept after their last use
+     */
+    public GuideItemStore(int maxPlayers, long idleMillis) {
+        this.maxPlayers = Math.max(1, maxPlayers);
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Gets the guide item of a player for a chest.
+     *
+     * @param uuid      the player UUID
+     * @param chestName the chest name
+     * @return the item, or null if there is none
+     */
+    public MysticChestItemGui get(UUID uuid, String chestName) {
+        PlayerItems items = players.get(uuid);
+        if (items == null) return null;
+
+        items.lastUsed = System.currentTimeMillis();
+        int index = items.indexOf(chestName);
+        return index < 0 ? null : items.items[index];
+    }
+
+    /**
+     * Stores the guide item of a player for a chest, replacing any previous one.
+     *
+     * @param uuid      the player UUID
+     * @param chestName the chest name
+     * @param item      the item
+     */
+    public void put(UUID uuid, String chestName, MysticChestItemGui item) {
+        PlayerItems items = players.computeIfAbsent(uuid, key -> new PlayerItems());
+        items.lastUsed = System.currentTimeMillis();
+        items.put(chestName, item);
+
+        while (players.size() > maxPlayers) {
+            Iterator<UUID> eldest = players.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes the guide item of a player for a chest.
+     *
+     * @param uuid      the player UUID
+     * @param chestName the chest name
+     */
+    public void remove(UUID uuid, String chestName) {
+        PlayerItems items = players.get(uuid);
+        if (items != null && items.remove(chestName) && items.size == 0) players.remove(uuid);
+    }
+
+    /**
+     * Removes every guide item of a player.
+     *
+     * @param uuid the player UUID
+     */
+    public void removeAll(UUID uuid) {
+        players.remove(uuid);
+    }
+
+    /**
+     * Drops the players whose items have not been used for the idle timeout.
+     */
+    public void expire() {
+        long now = System.currentTimeMillis();
+        int before = players.size();
+        players.values().removeIf(items -> now - items.lastUsed >= idleMillis);
+        evictionCount += before - players.size();
+    }
+
+    /**
+     * Gets the number of players with guide items.
+     *
+     * @return the player count
+     */
+    public int size() {
+        return players.size();
+    }
+
+    /**
+     * Gets the number of guide items of every player.
+     *
+     * @return the item count
+     */
+    public int getItemCount() {
+        int count = 0;
+        for (PlayerItems items : players.values()) count += items.size;
+        return count;
+    }
+
+    /**
+     * Gets a rough estimate of the memory held by the store.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Map.Entry<UUID, PlayerItems> entry : players.entrySet()) {
+            PlayerItems items = entry.getValue();
+            bytes += PLAYER_OVERHEAD_BYTES + 8L * items.names.length + (long) ITEM_BYTES * items.size;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of players dropped for being idle or over the maximum.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static class PlayerItems {
+        private String[] names = new String[2];
+        private MysticChestItemGui[] items = new MysticChestItemGui[2];
+        private int size;
+        private long lastUsed;
+
+        private int indexOf(String chestName) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(chestName)) return i;
+            }
+            return -1;
+        }
+
+        private void put(String chestName, MysticChestItemGui item) {
+            int index = indexOf(chestName);
+            if (index >= 0) {
+                items[index] = item;
+                return;
+            }
+
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                items = Arrays.copyOf(items, size * 2);
+            }
+            names[size] = chestName;
+            items[size] = item;
+            size++;
+        }
+
+        private boolean remove(String chestName) {
+            int index = indexOf(chestName);
+            if (index < 0) return false;
+
+            size--;
+            names[index] = names[size];
+            items[index] = items[size];
+            names[size] = null;
+            items[size] = null;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.items.MysticChestItemGui;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Renders the particle trails of every active guide from a single timer.
+ * <p>
+ * Each run spends at most the configured particle budget. Players are served round-robin, so when the budget
+ * runs out the players that were skipped go first on the next run. Particles are only sent to the player
+ * following the guide, and guides to chests in another world, closer than a block or beyond the maximum
+ * distance are not drawn. Only accessed from the main thread.
+ */
+public class GuideService implements Runnable {
+    private static final double TRAIL_LENGTH = 2.0;
+    private static final double TRAIL_STEP = 0.5;
+    private static final double EYE_HEIGHT = 1.5;
+
+    private final MysticChests plugin;
+    private final int particleBudget;
+    private final double maxDistanceSquared;
+    private final Map<UUID, PlayerGuides> guides = new HashMap<>();
+    private final List<PlayerGuides> order = new ArrayList<>();
+    private final Location origin = new Location(null, 0, 0, 0);
+    private int cursor;
+    private int lastParticles;
+
+    /**
+     * Creates a new guide service.
+     *
+     * @param plugin         the plugin instance
+     * @param particleBudget the maximum number of particles spawned per run
+     * @param maxDistance    the distance beyond which guides are not drawn, 0 for no limit
+     */
+    public GuideService(MysticChests plugin, int particleBudget, double maxDistance) {
+        this.plugin = plugin;
+        this.particleBudget = Math.max(1, particleBudget);
+        this.maxDistanceSquared = maxDistance > 0 ? maxDistance * maxDistance : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Starts or stops guiding a player to a chest.
+     *
+     * @param player    the player
+     * @param chestName the chest name
+     * @return true if the guide is now active, false if it was stopped or the chest does not exist
+     */
+    public boolean toggle(Player player, String chestName) {
+        PlayerGuides playerGuides = guides.get(player.getUniqueId());
+        if (playerGuides != null && playerGuides.remove(chestName)) {
+            if (playerGuides.chests.isEmpty()) remove(playerGuides);
+            return false;
+        }
+
+        SQLiteDatabase.ChestData chest = plugin.getChests().get(chestName);
+        if (chest == null) return false;
+
+        if (playerGuides == null) {
+            playerGuides = new PlayerGuides(player.getUniqueId());
+            guides.put(playerGuides.uuid, playerGuides);
+            order.add(playerGuides);
+        }
+        playerGuides.chests.add(chest);
+        return true;
+    }
+
+    /**
+     * Checks if a player is being guided to a chest.
+     *
+     * @param uuid      the player UUID
+     * @param chestName the chest name
+     * @return true if the guide is active
+     */
+    public boolean isActive(UUID uuid, String chestName) {
+        PlayerGuides playerGuides = guides.get(uuid);
+        return playerGuides != null && playerGuides.chests.stream().anyMatch(chest -> chest.getName().equals(chestName));
+    }
+
+    /**
+     * Stops guiding a player to a chest and resets the guide item.
+     *
+     * @param uuid      the player UUID
+     * @param chestName the chest name
+     */
+    public void stop(UUID uuid, String chestName) {
+        PlayerGuides playerGuides = guides.get(uuid);
+        if (playerGuides != null && playerGuides.remove(chestName) && playerGuides.chests.isEmpty()) remove(playerGuides);
+        reset(uuid, chestName);
+    }
+
+    /**
+     * Stops every guide of a player.
+     *
+     * @param uuid the player UUID
+     */
+    public void stopAll(UUID uuid) {
+        PlayerGuides playerGuides = guides.get(uuid);
+        if (playerGuides == null) return;
+
+        remove(playerGuides);
+        playerGuides.chests.forEach(chest -> reset(uuid, chest.getName()));
+    }
+
+    /**
+     * Stops the guides of a player to chests outside of the given world.
+     *
+     * @param uuid  the player UUID
+     * @param world the world name
+     */
+    public void stopOutside(UUID uuid, String world) {
+        PlayerGuides playerGuides = guides.get(uuid);
+        if (playerGuides == null) return;
+
+        playerGuides.chests.removeIf(chest -> {
+            if (chest.getWorld().equals(world)) return false;
+            reset(uuid, chest.getName());
+            return true;
+        });
+        if (playerGuides.chests.isEmpty()) remove(playerGuides);
+    }
+
+    /**
+     * Gets the number of players following at least one guide.
+     *
+     * @return the player count
+     */
+    public int getPlayerCount() {
+        return order.size();
+    }
+
+    /**
+     * Gets the number of particles spawned by the last run.
+     *
+     * @return the particle count
+     */
+    public int getLastParticleCount() {
+        return lastParticles;
+    }
+
+    @Override
+    public void run() {
+        lastParticles = 0;
+        int players = order.size();
+        if (players == 0) return;
+
+        int start = cursor % players;
+        int served = 0;
+        boolean emptied = false;
+        while (served < players && lastParticles < particleBudget) {
+            PlayerGuides playerGuides = order.get((start + served) % players);
+            lastParticles += render(playerGuides, particleBudget - lastParticles);
+            emptied |= playerGuides.chests.isEmpty();
+            served++;
+        }
+        cursor = start + served;
+
+        if (emptied) {
+            order.removeIf(playerGuides -> playerGuides.chests.isEmpty() && guides.remove(playerGuides.uuid) != null);
+        }
+    }
+
+    private int render(PlayerGuides playerGuides, int budget) {
+        Player player = Bukkit.getPlayer(playerGuides.uuid);
+        if (player == null) {
+            playerGuides.chests.clear();
+            return 0;
+        }
+        if (player.isDead()) return 0;
+
+        player.getLocation(origin);
+        World world = origin.getWorld();
+        if (world == null) return 0;
+
+        String worldName = world.getName();
+        double originX = origin.getX();
+        double originY = origin.getY() + EYE_HEIGHT;
+        double originZ = origin.getZ();
+
+        int spawned = 0;
+        for (int i = playerGuides.chests.size() - 1; i >= 0 && spawned < budget; i--) {
+            SQLiteDatabase.ChestData chest = playerGuides.chests.get(i);
+            if (!plugin.getChests().contains(chest)) {
+                playerGuides.chests.remove(i);
+                reset(playerGuides.uuid, chest.getName());
+                continue;
+            }
+            if (!chest.getWorld().equals(worldName)) continue;
+
+            double dx = chest.getX() + 0.5 - originX;
+            double dy = chest.getY() + 0.5 - originY;
+            double dz = chest.getZ() + 0.5 - originZ;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared < 1 || distanceSquared > maxDistanceSquared) continue;
+
+            double distance = Math.sqrt(distanceSquared);
+            double length = Math.min(TRAIL_LENGTH, distance);
+            for (double t = 0; t < length && spawned < budget; t += TRAIL_STEP) {
+                double f = t / distance;
+                player.spawnParticle(Particle.FLAME, originX + dx * f, originY + dy * f, originZ + dz * f, 1, 0, 0, 0, 0);
+                spawned++;
+            }
+        }
+        return spawned;
+    }
+
+    private void remove(PlayerGuides playerGuides) {
+        guides.remove(playerGuides.uuid);
+        order.remove(playerGuides);
+    }
+
+    private void reset(UUID uuid, String chestName) {
+        MysticChestItemGui item = plugin.getPlayerChest(uuid, chestName);
+        if (item != null && item.isClicked()) {
+            item.setClicked(false);
+            item.notifyWindows();
+        }
+    }
+
+    private static class PlayerGuides {
+        private final UUID uuid;
+        private final List<SQLiteDatabase.ChestData> chests = new ArrayList<>(1);
+
+        private PlayerGuides(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        private boolean remove(String chestName) {
+            return chests.removeIf(chest -> chest.getName().equals(chestName));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Inventory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The live inventories of the chests currently in use.
+ * <p>
+ * Every player opening a chest attaches to the same inventory, so viewers see each other's changes and
+ * the loot is decoded once. Changed contents are saved when the last viewer leaves and by {@link #flush()},
+ * and a chest without viewers is released once it has been idle for the configured time.
+ * Only accessed from the main thread.
+ */
+public class LiveChestInventories {
+    private final MysticChests plugin;
+    private final long idleMillis;
+    private final Map<String, LiveChest> chests = new HashMap<>();
+    private final Map<String, CompletableFuture<LiveChest>> loading = new HashMap<>();
+
+    /**
+     * Creates a new live inventory registry.
+     *
+     * @param plugin     the plugin instance
+     * @param idleMillis how long a chest without viewers stays in memory
+     */
+    public LiveChestInventories(MysticChests plugin, long idleMillis) {
+        this.plugin = plugin;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Gets the live inventory of a chest, decoding it first if nobody is using the chest.
+     * Viewers attach to it by opening it.
+     *
+     * @param chest the chest to open
+     * @return a future completed on the main thread with the live inventory
+     */
+    public CompletableFuture<Inventory> open(MysticChest chest) {
+        String name = chest.getName();
+        LiveChest live = chests.get(name);
+
+        CompletableFuture<LiveChest> future;
+        if (live != null) {
+            future = CompletableFuture.completedFuture(live);
+        } else {
+            future = loading.get(name);
+            if (future == null) {
+                CompletableFuture<LiveChest> pending = new CompletableFuture<>();
+                loading.put(name, pending);
+                chest.getInventoryAsync().whenComplete((inventory, throwable) -> {
+                    // A failed load must not stay in loading, and a chest discarded meanwhile must not come back
+                    if (!loading.remove(name, pending)) {
+                        pending.completeExceptionally(new IllegalStateException("Chest " + name + " was removed while loading"));
+                    } else if (throwable != null) {
+                        pending.completeExceptionally(throwable);
+                    } else {
+                        LiveChest loaded = new LiveChest(chest, (MysticChestHolder) inventory.getHolder());
+                        chests.put(name, loaded);
+                        pending.complete(loaded);
+                    }
+                });
+                future = pending;
+            }
+        }
+
+        return future.thenApply(loaded -> {
+            if (chests.get(name) != loaded) {
+                throw new IllegalStateException("Chest " + name + " was removed while loading");
+            }
+
+            loaded.lastUsed = System.currentTimeMillis();
+            return loaded.holder.getInventory();
+        });
+    }
+
+    /**
+     * Called when a player closes a live inventory, saving the contents if they were the last viewer.
+     *
+     * @param player    the player closing the inventory
+     * @param inventory the closed inventory
+     */
+    public void leave(HumanEntity player, Inventory inventory) {
+        LiveChest live = get(inventory);
+        if (live == null) return;
+
+        live.lastUsed = System.currentTimeMillis();
+        if (inventory.getViewers().stream().allMatch(viewer -> viewer == player)) save(live);
+    }
+
+    /**
+     * Checks if an inventory is the current live inventory of its chest.
+     *
+     * @param inventory the inventory to check
+     * @return true if the inventory is live, false if it was discarded or is not a chest inventory
+     */
+    public boolean isLive(Inventory inventory) {
+        return get(inventory) != null;
+    }
+
+    /**
+     * Checks if a chest has a live inventory or one being loaded.
+     *
+     * @param name the chest name
+     * @return true if the chest is in use
+     */
+    public boolean isOpen(String name) {
+        return chests.containsKey(name) || loading.containsKey(name);
+    }
+
+    /**
+     * Drops the live inventory of a chest without saving it, closing it on the next tick for every remaining viewer.
+     *
+     * @param name the chest name
+     */
+    public void discard(String name) {
+        LiveChest live = chests.remove(name);
+        loading.remove(name);
+        if (live == null) return;
+
+        Inventory inventory = live.holder.getInventory();
+        List<HumanEntity> viewers = new ArrayList<>(inventory.getViewers());
+        Bukkit.getScheduler().runTask(plugin, () -> viewers.stream()
+                .filter(viewer -> viewer.getOpenInventory().getTopInventory() == inventory)
+                .forEach(HumanEntity::closeInventory));
+    }
+
+    /**
+     * Saves every changed live inventory and releases the idle ones.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        chests.values().removeIf(live -> {
+            save(live);
+            return live.holder.getInventory().getViewers().isEmpty() && now - live.lastUsed >= idleMillis;
+        });
+    }
+
+    /**
+     * Saves every changed live inventory and closes them for their viewers.
+     */
+    public void shutdown() {
+        List<LiveChest> open = new ArrayList<>(chests.values());
+        open.forEach(this::save);
+        open.forEach(live -> new ArrayList<>(live.holder.getInventory().getViewers()).forEach(HumanEntity::closeInventory));
+        chests.clear();
+        loading.clear();
+    }
+
+    /**
+     * Gets the number of chests with a live inventory.
+     *
+     * @return the live inventory count
+     */
+    public int size() {
+        return chests.size();
+    }
+
+    private LiveChest get(Inventory inventory) {
+        if (!(inventory.getHolder() instanceof MysticChestHolder holder)) return null;
+
+        LiveChest live = chests.get(holder.getChestName());
+        return live != null && live.holder == holder ? live : null;
+    }
+
+    private void save(LiveChest live) {
+        if (!live.holder.isModified()) return;
+
+        live.holder.clearModified();
+        live.chest.setItemsAsync(live.holder.getInventory().getContents(), () -> plugin.updateChest(live.chest));
+    }
+
+    private static class LiveChest {
+        private final MysticChest chest;
+        private final MysticChestHolder holder;
+        private long lastUsed = System.currentTimeMillis();
+
+        private LiveChest(MysticChest chest, MysticChestHolder holder) {
+            this.chest = chest;
+            this.holder = holder;
+        }
+    }
+}
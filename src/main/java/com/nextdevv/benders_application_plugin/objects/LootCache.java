@@ -0,0 +1,171 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.utils.LootSerializer;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of decoded chest loot, bounded by an estimated memory budget and evicted in LRU order.
+ * <p>
+ * Entries are keyed by chest name and remember the payload they were decoded from, so an entry whose
+ * chest has since been given new loot is treated as a miss even if nobody invalidated it. The cached
+ * arrays are shared: callers must copy the items before changing them.
+ */
+public class LootCache {
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int ITEM_OVERHEAD = 256;
+    private static final int PAYLOAD_FACTOR = 4;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new loot cache.
+     *
+     * @param maxBytes the memory budget in bytes, 0 disables the cache
+     */
+    public LootCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the decoded loot of a chest, decoding and caching the payload on a miss.
+     *
+     * @param name    the chest name
+     * @param payload the current loot payload of the chest, may be null
+     * @return the decoded items, shared with the cache
+     * @throws IllegalStateException if the payload cannot be decoded
+     */
+    public ItemStack[] get(String name, byte[] payload) {
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.payload == payload) {
+                hits.incrementAndGet();
+                return entry.items;
+            }
+        }
+
+        misses.incrementAndGet();
+        ItemStack[] items = LootSerializer.decode(payload);
+        if (!LootSerializer.isLegacy(payload)) put(name, payload, items);
+        return items;
+    }
+
+    /**
+     * Caches the decoded loot of a chest, replacing any previous entry.
+     *
+     * @param name    the chest name
+     * @param payload the payload the items were decoded from
+     * @param items   the decoded items, which must not be changed afterwards
+     */
+    public synchronized void put(String name, byte[] payload, ItemStack[] items) {
+        Entry entry = new Entry(payload, items, estimate(payload, items));
+        if (entry.size > maxBytes) {
+            invalidate(name);
+            return;
+        }
+
+        Entry previous = entries.put(name, entry);
+        if (previous != null) bytes -= previous.size;
+        bytes += entry.size;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.size;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the cached loot of a chest.
+     *
+     * @param name the chest name
+     */
+    public synchronized void invalidate(String name) {
+        Entry entry = entries.remove(name);
+        if (entry != null) bytes -= entry.size;
+    }
+
+    /**
+     * Drops every cached entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private static long estimate(byte[] payload, ItemStack[] items) {
+        long size = ENTRY_OVERHEAD + 16L * items.length;
+        for (ItemStack item : items) {
+            if (item != null) size += ITEM_OVERHEAD;
+        }
+        return size + (payload == null ? 0 : (long) payload.length * PAYLOAD_FACTOR);
+    }
+
+    /**
+     * Gets the number of cached chests.
+     *
+     * @return the entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the estimated memory held by the cached loot.
+     *
+     * @return the estimated size in bytes
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the memory budget of the cache.
+     *
+     * @return the budget in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to decode the payload.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the memory budget.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private record Entry(byte[] payload, ItemStack[] items, long size) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import com.nextdevv.benders_application_plugin.utils.LootSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs loot decoding and encoding on a worker pool and hands the results back to the main thread.
+ * <p>
+ * Decoded loot goes through the {@link LootCache}, so a cache hit completes immediately. Every encode of a
+ * chest gets a sequence number and only the result of the latest one is applied, so a slow encode can never
+ * overwrite the loot of a later close. Results waiting for the main thread are queued, so the ones whose
+ * scheduled task is cancelled by the plugin being disabled are still applied by {@link #shutdown()}.
+ */
+public class LootPipeline {
+    private final Plugin plugin;
+    private final LootCache cache;
+    private final ExecutorService workers;
+    private final Executor mainThread;
+    private final Queue<Runnable> handoffs = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new loot pipeline.
+     *
+     * @param plugin  the plugin used to schedule the main thread handoff
+     * @param cache   the cache the decoded loot is read from and written to
+     * @param threads the number of worker threads
+     */
+    public LootPipeline(Plugin plugin, LootCache cache, int threads) {
+        this.plugin = plugin;
+        this.cache = cache;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "MysticChests-Loot-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.mainThread = runnable -> {
+            if (Bukkit.isPrimaryThread() || !plugin.isEnabled()) {
+                runnable.run();
+            } else {
+                handoffs.add(runnable);
+                Bukkit.getScheduler().runTask(plugin, this::runHandoffs);
+            }
+        };
+    }
+
+    /**
+     * Loads and decodes the loot of a chest off the main thread.
+     *
+     * @param chest the chest, whose loot may not be loaded yet
+     * @return a future completed on the main thread with the decoded items or the decoding failure
+     */
+    public CompletableFuture<ItemStack[]> decode(SQLiteDatabase.ChestData chest) {
+        // whenCompleteAsync also hands failures to the main thread, which thenApplyAsync would complete on the worker
+        return CompletableFuture.supplyAsync(() -> cache.get(chest.getName(), chest.getLoot()), workers)
+                .whenCompleteAsync((items, throwable) -> {
+                }, mainThread);
+    }
+
+    /**
+     * Loads and decodes the loot of a chest into the cache ahead of time.
+     *
+     * @param chest the chest, whose loot may not be loaded yet
+     */
+    public void prefetch(SQLiteDatabase.ChestData chest) {
+        workers.execute(() -> {
+            try {
+                byte[] payload = chest.getLoot();
+                if (payload != null) cache.get(chest.getName(), payload);
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Runs a background task on the loot worker pool, such as training a loot dictionary.
+     *
+     * @param task the task to run
+     * @return a future completed on the worker thread once the task has run
+     */
+    public CompletableFuture<Void> execute(Runnable task) {
+        return CompletableFuture.runAsync(task, workers);
+    }
+
+    /**
+     * Encodes the loot of a chest off the main thread.
+     * <p>
+     * The items must be a snapshot no one else changes. If another encode of the same chest is started
+     * before this one finishes, this result is dropped.
+     *
+     * @param name  the chest name
+     * @param items the items to encode
+     * @param apply called on the main thread with the encoded payload
+     */
+    public void encode(String name, ItemStack[] items, Consumer<byte[]> apply) {
+        long id = sequence.incrementAndGet();
+        latest.put(name, id);
+
+        CompletableFuture.supplyAsync(() -> LootSerializer.encode(items), workers)
+                .thenAcceptAsync(payload -> {
+                    if (!latest.remove(name, id)) return;
+
+                    cache.put(name, payload, items);
+                    apply.accept(payload);
+                }, mainThread)
+                .exceptionally(throwable -> {
+                    latest.remove(name, id);
+                    throwable.printStackTrace();
+                    return null;
+                });
+    }
+
+    /**
+     * Gets the executor running tasks on the main thread, or inline once the plugin is disabled.
+     *
+     * @return the main thread executor
+     */
+    public Executor getMainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Stops the worker pool, waiting for queued work, then applies the results still waiting for the main thread.
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for loot encoding to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runHandoffs();
+    }
+
+    private void runHandoffs() {
+        Runnable handoff;
+        while ((handoff = handoffs.poll()) != null) {
+            handoff.run();
+        }
+    }
+}
@@ -3,30 +3,30 @@ package com.nextdevv.benders_application_plugin.objects;
 import com.nextdevv.benders_application_plugin.MysticChests;
 import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
 import com.nextdevv.benders_application_plugin.utils.ChatUtil;
-import com.nextdevv.benders_application_plugin.utils.ItemSerializer;
-import com.nextdevv.benders_application_plugin.utils.StringCompressor;
+import com.nextdevv.benders_application_plugin.utils.LootSerializer;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
 public class MysticChest extends SQLiteDatabase.ChestData {
     private final SQLiteDatabase database;
     private final SQLiteDatabase.ChestData data;
-    private final Location location;
+    private Location location;
 
     /**
-     * Constructor for a MysticChest object.
+     * Constructor for a new MysticChest object, reserving its id and generating its nonce.
      *
      * @param database The SQLiteDatabase instance for database interactions.
      * @param name     Chest name.
@@ -35,35 +35,50 @@ public class MysticChest extends SQLiteDatabase.ChestData {
      * @param y        Y-coordinate.
      * @param z        Z-coordinate.
      * @param locked   Whether the chest is locked.
-     * @param loot     Comma-separated list of loot items.
+     * @param loot     Loot items.
      */
     public MysticChest(@NonNull SQLiteDatabase database, @NonNull String name, @NonNull String world, int x, int y, int z, boolean locked, @NonNull List<ItemStack> loot) {
-        super(name, world, x, y, z, locked, "");
+        this(database, new SQLiteDatabase.ChestData(database.nextChestId(), SQLiteDatabase.ChestData.newNonce(), name, world, x, y, z, locked, null), loot);
+    }
+
+    private MysticChest(SQLiteDatabase database, SQLiteDatabase.ChestData created, List<ItemStack> loot) {
+        super(created);
 
-        String lootSerialized = "";
+        byte[] lootSerialized = null;
         if(!loot.isEmpty()) {
-            String serializedItems = ItemSerializer.serializeItems(loot.toArray(ItemStack[]::new));
-            lootSerialized = StringCompressor.smartCompress(serializedItems);
+            lootSerialized = LootSerializer.encode(loot.toArray(ItemStack[]::new));
         }
 
         this.setLoot(lootSerialized);
-        this.data = new SQLiteDatabase.ChestData(name, world, x, y, z, locked, lootSerialized);
+        created.setLoot(lootSerialized);
+        this.data = created;
         this.database = database;
-        this.location = new Location(JavaPlugin.getPlugin(MysticChests.class).getServer().getWorld(world), x, y, z);
     }
 
     public MysticChest(SQLiteDatabase database, SQLiteDatabase.ChestData data) {
-        super(data.getName(), data.getWorld(), data.getX(), data.getY(), data.getZ(), data.isLocked(), data.getLoot());
+        super(data);
         this.data = data;
         this.database = database;
-        this.location = new Location(JavaPlugin.getPlugin(MysticChests.class).getServer().getWorld(data.getWorld()), data.getX(), data.getY(), data.getZ());
+    }
+
+    /**
+     * Gets the loot, loading it through the chest data this chest was created from so it is only read once.
+     *
+     * @return the loot
+     */
+    @Override
+    public synchronized byte[] getLoot() {
+        if (!isLootLoaded()) setLoot(data.getLoot());
+        return super.getLoot();
     }
 
     /**
      * Save this chest to the database.
+     *
+     * @return A future completed once the chest has been written, failing if a chest with the same name or location exists.
      */
-    public void saveToDatabase() {
-        database.saveChest(getName(), getWorld(), getX(), getY(), getZ(), isLocked(), getLoot());
+    public CompletableFuture<Void> saveToDatabase() {
+        return database.saveChest(this);
     }
 
     /**
@@ -72,6 +87,9 @@ public class MysticChest extends SQLiteDatabase.ChestData {
      * @return the Location object representing the chest's location
      */
     public Location getLocation() {
+        if (location == null) {
+            location = new Location(JavaPlugin.getPlugin(MysticChests.class).getServer().getWorld(getWorld()), getX(), getY(), getZ());
+        }
         return location;
     }
 
@@ -81,7 +99,7 @@ public class MysticChest extends SQLiteDatabase.ChestData {
      * @param locked The new lock status.
      */
     public void updateLockStatus(boolean locked) {
-        this.database.updateChestLockStatus(getId(), locked);
+        this.database.updateChestLockStatus(getName(), locked);
     }
 
     /**
@@ -99,9 +117,9 @@ public class MysticChest extends SQLiteDatabase.ChestData {
     public void unlockChest() {
         if (isLocked()) {
             updateLockStatus(false);
-            System.out.println("Chest " + getName() + " has been unlocked!");
+            logger().fine("Chest " + getName() + " has been unlocked!");
         } else {
-            System.out.println("Chest " + getName() + " is already unlocked!");
+            logger().fine("Chest " + getName() + " is already unlocked!");
         }
     }
 
@@ -111,9 +129,9 @@ public class MysticChest extends SQLiteDatabase.ChestData {
     public void lockChest() {
         if (!isLocked()) {
             updateLockStatus(true);
-            System.out.println("Chest " + getName() + " has been locked!");
+            logger().fine("Chest " + getName() + " has been locked!");
         } else {
-            System.out.println("Chest " + getName() + " is already locked!");
+            logger().fine("Chest " + getName() + " is already locked!");
         }
     }
 
@@ -122,7 +140,7 @@ public class MysticChest extends SQLiteDatabase.ChestData {
      */
     public void deleteFromDatabase() {
         database.deleteChestByName(getName());
-        System.out.println("Chest " + getName() + " has been deleted from the database.");
+        logger().fine("Chest " + getName() + " has been deleted from the database.");
     }
 
     /**
@@ -131,7 +149,10 @@ public class MysticChest extends SQLiteDatabase.ChestData {
      * @return Array of loot items.
      */
     public String[] getLootItems() {
-        return getLoot() != null ? getLoot().split(",") : new String[0];
+        return Arrays.stream(LootSerializer.decode(getLoot()))
+                .filter(Objects::nonNull)
+                .map(item -> item.getAmount() + "x " + item.getType())
+                .toArray(String[]::new);
     }
 
     /**
@@ -140,11 +161,11 @@ public class MysticChest extends SQLiteDatabase.ChestData {
     public void displayLoot() {
         String[] lootItems = getLootItems();
         if (lootItems.length == 0) {
-            System.out.println("Chest " + getName() + " has no loot.");
+            logger().info("Chest " + getName() + " has no loot.");
         } else {
-            System.out.println("Loot for chest " + getName() + ":");
+            logger().info("Loot for chest " + getName() + ":");
             for (String item : lootItems) {
-                System.out.println("- " + item);
+                logger().info("- " + item);
             }
         }
     }
@@ -184,19 +205,38 @@ public class MysticChest extends SQLiteDatabase.ChestData {
         meta.addEnchant(Enchantment.LURE, 1, true);
         meta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
 
-        PersistentDataContainer container = meta.getPersistentDataContainer();
-        container.set(new NamespacedKey(JavaPlugin.getPlugin(MysticChests.class), "mystic-chest-key"), PersistentDataType.STRING, getWorld() + ":" + getX() + ":" + getY() + ":" + getZ());
-        container.set(new NamespacedKey(JavaPlugin.getPlugin(MysticChests.class), "mystic-chest-name"), PersistentDataType.STRING, getName());
+        ChestKeys.write(meta.getPersistentDataContainer(), this);
 
         item.setItemMeta(meta);
         return item;
     }
 
-    public Inventory getInventory() {
-        Inventory inventory = JavaPlugin.getPlugin(MysticChests.class).getServer().createInventory(null, 27, getName());
-        String decompressed = StringCompressor.smartDecompress(getLoot());
-        ItemStack[] items = ItemSerializer.deserializeItems(decompressed);
+    /**
+     * Loads and decodes the loot off the main thread and builds the chest inventory once it is ready.
+     * Legacy loot is re-encoded off the main thread as well.
+     *
+     * @return a future completed on the main thread with the inventory
+     */
+    public CompletableFuture<Inventory> getInventoryAsync() {
+        LootPipeline pipeline = JavaPlugin.getPlugin(MysticChests.class).getLootPipeline();
+
+        return pipeline.decode(this).thenApply(items -> {
+            if (LootSerializer.isLegacy(getLoot())) {
+                pipeline.encode(getName(), items, encoded -> {
+                    setLoot(encoded);
+                    data.setLoot(encoded);
+                    database.updateChestLoot(getName(), encoded);
+                });
+            }
+            return createInventory(items);
+        });
+    }
+
+    private Inventory createInventory(ItemStack[] items) {
+        Inventory inventory = MysticChestHolder.loot(getName(), 27).getInventory();
         for (ItemStack item : items) {
+            if (item == null) continue;
+
             int randomSlot = (int) (Math.random() * inventory.getSize());
             while (inventory.getItem(randomSlot) != null) {
                 randomSlot = (int) (Math.random() * inventory.getSize());
@@ -206,9 +246,26 @@ public class MysticChest extends SQLiteDatabase.ChestData {
         return inventory;
     }
 
-    public void setItems(ItemStack[] items) {
-        String serializedItems = ItemSerializer.serializeItems(items);
-        String compressed = StringCompressor.smartCompress(serializedItems);
-        setLoot(compressed);
+    /**
+     * Encodes the items off the main thread and sets them as the loot of this chest.
+     * The items are copied first, so the caller may keep changing them.
+     *
+     * @param items the new loot
+     * @param then  called on the main thread once the loot has been set
+     */
+    public void setItemsAsync(ItemStack[] items, Runnable then) {
+        ItemStack[] snapshot = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != null) snapshot[i] = items[i].clone();
+        }
+
+        JavaPlugin.getPlugin(MysticChests.class).getLootPipeline().encode(getName(), snapshot, encoded -> {
+            setLoot(encoded);
+            then.run();
+        });
+    }
+
+    private static Logger logger() {
+        return JavaPlugin.getPlugin(MysticChests.class).getLogger();
     }
 }
@@ -0,0 +1,109 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Holder of the inventories opened by the plugin.
+ * <p>
+ * Listeners identify mystic chest inventories with an instanceof check on the holder instead of
+ * comparing view titles, and read the chest the inventory belongs to from it. The holder also
+ * tracks whether the contents were changed since they were last saved.
+ */
+public class MysticChestHolder implements InventoryHolder {
+    /**
+     * What an inventory is used for.
+     */
+    public enum Type {
+        /**
+         * The loot of an existing chest.
+         */
+        LOOT,
+        /**
+         * The loot of a chest being created.
+         */
+        CREATE
+    }
+
+    private final Type type;
+    private final String chestName;
+    private final Inventory inventory;
+    private boolean modified;
+
+    private MysticChestHolder(Type type, String chestName, int size, String title) {
+        this.type = type;
+        this.chestName = chestName;
+        this.inventory = Bukkit.createInventory(this, size, title);
+    }
+
+    /**
+     * Creates the inventory holding the loot of a chest.
+     *
+     * @param chestName the chest name, also used as the title
+     * @param size      the inventory size
+     * @return the holder of the new inventory
+     */
+    public static MysticChestHolder loot(String chestName, int size) {
+        return new MysticChestHolder(Type.LOOT, chestName, size, chestName);
+    }
+
+    /**
+     * Creates the inventory a player fills with the loot of a new chest.
+     *
+     * @param chestName the name of the chest being created
+     * @param size      the inventory size
+     * @param title     the inventory title
+     * @return the holder of the new inventory
+     */
+    public static MysticChestHolder create(String chestName, int size, String title) {
+        return new MysticChestHolder(Type.CREATE, chestName, size, title);
+    }
+
+    @Override
+    public @NonNull Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Gets what the inventory is used for.
+     *
+     * @return the inventory type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the name of the chest the inventory belongs to.
+     *
+     * @return the chest name
+     */
+    public String getChestName() {
+        return chestName;
+    }
+
+    /**
+     * Checks if the contents were changed by a player since they were last saved.
+     *
+     * @return true if the contents may have changed, false otherwise
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Marks the contents as changed.
+     */
+    public void markModified() {
+        modified = true;
+    }
+
+    /**
+     * Clears the changed flag, once the current contents have been taken to be saved.
+     */
+    public void clearModified() {
+        modified = false;
+    }
+}
@@ -0,0 +1,178 @@
+package com.nextdevv.benders_application_plugin.objects;
+
+import com.nextdevv.benders_application_plugin.MysticChests;
+import com.nextdevv.benders_application_plugin.database.SQLiteDatabase;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * The chest keys held by every online player.
+ * <p>
+ * Picked up keys are added directly. Any other inventory change only marks the player, and marked players are
+ * rescanned once on the next tick, however many changes they made. Reading the keys of a marked player rescans
+ * it first, so readers always see the current inventory. Changes made without an inventory event, such as items
+ * given by other plugins, are repaired by {@link #reconcile()}, which rescans a few players per run.
+ * Only accessed from the main thread.
+ */
+public class PlayerKeyIndex {
+    private final MysticChests plugin;
+    private final int reconcileBatch;
+    private final Map<UUID, Set<SQLiteDatabase.ChestData>> keys = new HashMap<>();
+    private final Set<UUID> dirty = new LinkedHashSet<>();
+    private boolean flushScheduled;
+    private Iterator<UUID> reconcileCursor = Collections.emptyIterator();
+    private long rescanCount;
+    private long driftCount;
+
+    /**
+     * Creates a new key index.
+     *
+     * @param plugin         the plugin instance
+     * @param reconcileBatch the number of players rescanned per {@link #reconcile()} run
+     */
+    public PlayerKeyIndex(MysticChests plugin, int reconcileBatch) {
+        this.plugin = plugin;
+        this.reconcileBatch = Math.max(1, reconcileBatch);
+    }
+
+    /**
+     * Gets the keys held by a player, rescanning the inventory first if it changed.
+     *
+     * @param player the player
+     * @return the chests the player holds a key for, in inventory order
+     */
+    public Set<SQLiteDatabase.ChestData> getKeys(Player player) {
+        Set<SQLiteDatabase.ChestData> playerKeys = keys.get(player.getUniqueId());
+        if (playerKeys == null || dirty.remove(player.getUniqueId())) {
+            playerKeys = rescan(player);
+        } else {
+            playerKeys.removeIf(chest -> !plugin.getChests().contains(chest));
+        }
+        return Collections.unmodifiableSet(playerKeys);
+    }
+
+    /**
+     * Checks if a player holds a key for a chest.
+     *
+     * @param player the player
+     * @param chest  the chest
+     * @return true if the player holds a key for the chest
+     */
+    public boolean hasKey(Player player, SQLiteDatabase.ChestData chest) {
+        return getKeys(player).contains(chest);
+    }
+
+    /**
+     * Records a key a player just received.
+     *
+     * @param player the player
+     * @param chest  the chest the key opens
+     */
+    public void add(Player player, SQLiteDatabase.ChestData chest) {
+        Set<SQLiteDatabase.ChestData> playerKeys = keys.get(player.getUniqueId());
+        if (playerKeys != null) playerKeys.add(chest);
+        else markDirty(player);
+    }
+
+    /**
+     * Marks the inventory of a player as changed, rescanning it on the next tick.
+     *
+     * @param player the player
+     */
+    public void markDirty(Player player) {
+        if (!dirty.add(player.getUniqueId()) || flushScheduled || !plugin.isEnabled()) return;
+
+        flushScheduled = true;
+        Bukkit.getScheduler().runTask(plugin, this::flush);
+    }
+
+    /**
+     * Rescans the inventory of a player.
+     *
+     * @param player the player
+     * @return the keys the player holds
+     */
+    public Set<SQLiteDatabase.ChestData> rescan(Player player) {
+        Set<SQLiteDatabase.ChestData> playerKeys = ChestKeys.collect(plugin.getChests(), player.getInventory());
+        keys.put(player.getUniqueId(), playerKeys);
+        dirty.remove(player.getUniqueId());
+        rescanCount++;
+        return playerKeys;
+    }
+
+    /**
+     * Forgets a player.
+     *
+     * @param uuid the player UUID
+     */
+    public void remove(UUID uuid) {
+        keys.remove(uuid);
+        dirty.remove(uuid);
+    }
+
+    /**
+     * Rescans the next batch of online players, going round the whole server over successive runs.
+     */
+    public void reconcile() {
+        for (int i = 0; i < reconcileBatch; i++) {
+            if (!reconcileCursor.hasNext()) {
+                reconcileCursor = new ArrayList<>(keys.keySet()).iterator();
+                if (!reconcileCursor.hasNext()) return;
+            }
+
+            UUID uuid = reconcileCursor.next();
+            Set<SQLiteDatabase.ChestData> previous = keys.get(uuid);
+            if (previous == null || dirty.contains(uuid)) continue;
+
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) {
+                remove(uuid);
+                continue;
+            }
+
+            previous.removeIf(chest -> !plugin.getChests().contains(chest));
+            if (!previous.equals(rescan(player))) driftCount++;
+        }
+    }
+
+    /**
+     * Gets the number of players in the index.
+     *
+     * @return the player count
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Gets the number of inventory rescans.
+     *
+     * @return the rescan count
+     */
+    public long getRescanCount() {
+        return rescanCount;
+    }
+
+    /**
+     * Gets the number of reconciler rescans that found keys the index had missed, not counting deleted chests.
+     *
+     * @return the drift count
+     */
+    public long getDriftCount() {
+        return driftCount;
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        List<UUID> changed = new ArrayList<>(dirty);
+        dirty.clear();
+
+        for (UUID uuid : changed) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) keys.remove(uuid);
+            else rescan(player);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.nextdevv.benders_application_plugin.utils;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockDataMeta;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.Repairable;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary codec for ItemStack arrays.
+ * <p>
+ * The payload starts with a palette of the material names used by the array, followed by one entry per
+ * slot: a varint palette reference (0 for an empty slot), a varint amount and a meta section. Metas made
+ * only of a display name, lore, enchantments, item flags, damage, unbreakable and custom model data are
+ * written field by field; anything else falls back to a Bukkit object stream for that single item.
+ * Every compact meta is checked by rebuilding the item from its fields. Meta shapes that failed the check
+ * are remembered and go straight to the Bukkit stream; a passing check is never reused for another item.
+ * Material names are written instead of ordinals so the payloads survive server upgrades.
+ *
+ * @author giovanni
+ */
+public class CompactItemCodec {
+    private static final int META_NONE = 0;
+    private static final int META_COMPACT = 1;
+    private static final int META_BUKKIT = 2;
+
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_LORE = 1 << 1;
+    private static final int FIELD_ENCHANTS = 1 << 2;
+    private static final int FIELD_FLAGS = 1 << 3;
+    private static final int FIELD_DAMAGE = 1 << 4;
+    private static final int FIELD_UNBREAKABLE = 1 << 5;
+    private static final int FIELD_MODEL_DATA = 1 << 6;
+
+    /**
+     * Meta shapes whose compact fields failed to rebuild an item exactly.
+     */
+    private static final Set<MetaShape> BUKKIT_SHAPES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Encodes an array of ItemStacks.
+     *
+     * @param items the items to encode
+     * @return the encoded items
+     * @throws IllegalArgumentException if the items array is null
+     * @throws IllegalStateException if an item cannot be serialized
+     */
+    public static byte[] encode(ItemStack[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException("ItemStack array cannot be null");
+        }
+
+        Map<Material, Integer> palette = new LinkedHashMap<>();
+        for (ItemStack item : items) {
+            if (item != null) palette.putIfAbsent(item.getType(), palette.size());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + items.length * 8);
+        writeVarInt(out, palette.size());
+        for (Material material : palette.keySet()) {
+            writeString(out, material.name());
+        }
+
+        writeVarInt(out, items.length);
+        for (ItemStack item : items) {
+            if (item == null) {
+                writeVarInt(out, 0);
+                continue;
+            }
+
+            writeVarInt(out, palette.get(item.getType()) + 1);
+            writeVarInt(out, item.getAmount());
+            writeMeta(out, item);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an array of ItemStacks.
+     *
+     * @param data the encoded items
+     * @param offset the offset of the encoded items in the array
+     * @param length the length of the encoded items
+     * @return the decoded items
+     * @throws IllegalStateException if the data cannot be decoded
+     */
+    public static ItemStack[] decode(byte[] data, int offset, int length) {
+        ByteBuffer in = ByteBuffer.wrap(data, offset, length);
+
+        try {
+            Material[] palette = new Material[readCount(in)];
+            for (int i = 0; i < palette.length; i++) {
+                String name = readString(in);
+                palette[i] = Material.getMaterial(name);
+                if (palette[i] == null) {
+                    throw new IllegalStateException("Unknown material: " + name);
+                }
+            }
+
+            ItemStack[] items = new ItemStack[readCount(in)];
+            for (int i = 0; i < items.length; i++) {
+                int entry = readVarInt(in);
+                if (entry == 0) continue;
+
+                ItemStack item = new ItemStack(palette[entry - 1], readVarInt(in));
+                readMeta(in, item);
+                items[i] = item;
+            }
+            return items;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to decode ItemStack array", e);
+        }
+    }
+
+    private static void writeMeta(ByteArrayOutputStream out, ItemStack item) {
+        if (!item.hasItemMeta()) {
+            out.write(META_NONE);
+            return;
+        }
+
+        ItemMeta meta = Objects.requireNonNull(item.getItemMeta());
+        if (meta.getPersistentDataContainer().isEmpty()) {
+            ByteArrayOutputStream compact = new ByteArrayOutputStream();
+            writeCompactMeta(compact, meta);
+            byte[] fields = compact.toByteArray();
+            if (isCompact(item, meta, fields)) {
+                out.write(META_COMPACT);
+                out.writeBytes(fields);
+                return;
+            }
+        }
+
+        byte[] serialized = serializeBukkit(item);
+        out.write(META_BUKKIT);
+        writeVarInt(out, serialized.length);
+        out.writeBytes(serialized);
+    }
+
+    private static void writeCompactMeta(ByteArrayOutputStream out, ItemMeta meta) {
+        int fields = 0;
+        if (meta.hasDisplayName()) fields |= FIELD_NAME;
+        if (meta.hasLore()) fields |= FIELD_LORE;
+        if (meta.hasEnchants()) fields |= FIELD_ENCHANTS;
+        if (!meta.getItemFlags().isEmpty()) fields |= FIELD_FLAGS;
+        if (meta instanceof Damageable damageable && damageable.hasDamage()) fields |= FIELD_DAMAGE;
+        if (meta.isUnbreakable()) fields |= FIELD_UNBREAKABLE;
+        if (meta.hasCustomModelData()) fields |= FIELD_MODEL_DATA;
+        writeVarInt(out, fields);
+
+        if ((fields & FIELD_NAME) != 0) writeString(out, meta.getDisplayName());
+        if ((fields & FIELD_LORE) != 0) {
+            List<String> lore = Objects.requireNonNull(meta.getLore());
+            writeVarInt(out, lore.size());
+            lore.forEach(line -> writeString(out, line));
+        }
+        if ((fields & FIELD_ENCHANTS) != 0) {
+            Map<Enchantment, Integer> enchants = meta.getEnchants();
+            writeVarInt(out, enchants.size());
+            for (Map.Entry<Enchantment, Integer> enchant : enchants.entrySet()) {
+                writeString(out, enchant.getKey().getKey().toString());
+                writeVarInt(out, enchant.getValue());
+            }
+        }
+        if ((fields & FIELD_FLAGS) != 0) {
+            Set<ItemFlag> flags = meta.getItemFlags();
+            writeVarInt(out, flags.size());
+            flags.forEach(flag -> writeString(out, flag.name()));
+        }
+        if ((fields & FIELD_DAMAGE) != 0) writeVarInt(out, ((Damageable) meta).getDamage());
+        if ((fields & FIELD_MODEL_DATA) != 0) writeVarInt(out, meta.getCustomModelData());
+    }
+
+    /**
+     * Checks if the compact fields rebuild the meta of an item exactly. Shapes that failed before are
+     * rejected without rebuilding, which is always safe since the Bukkit stream keeps every meta.
+     */
+    private static boolean isCompact(ItemStack item, ItemMeta meta, byte[] fields) {
+        MetaShape shape = new MetaShape(meta.getClass(), shapeOf(meta));
+        if (BUKKIT_SHAPES.contains(shape)) return false;
+
+        if (item.isSimilar(rebuild(item, fields))) return true;
+        BUKKIT_SHAPES.add(shape);
+        return false;
+    }
+
+    /**
+     * Packs the fields a meta has, both the compact ones and those only the Bukkit stream can write.
+     */
+    private static long shapeOf(ItemMeta meta) {
+        long shape = 0;
+        if (meta.hasDisplayName()) shape |= FIELD_NAME;
+        if (meta.hasLore()) shape |= FIELD_LORE;
+        if (meta.hasEnchants()) shape |= FIELD_ENCHANTS;
+        if (!meta.getItemFlags().isEmpty()) shape |= FIELD_FLAGS;
+        if (meta instanceof Damageable damageable && damageable.hasDamage()) shape |= FIELD_DAMAGE;
+        if (meta.isUnbreakable()) shape |= FIELD_UNBREAKABLE;
+        if (meta.hasCustomModelData()) shape |= FIELD_MODEL_DATA;
+
+        if (meta.hasAttributeModifiers()) shape |= 1L << 16;
+        if (meta instanceof Repairable repairable && repairable.hasRepairCost()) shape |= 1L << 17;
+        if (meta instanceof Damageable damageable && damageable.hasMaxDamage()) shape |= 1L << 18;
+        if (meta instanceof BlockDataMeta blockData && blockData.hasBlockData()) shape |= 1L << 19;
+        if (meta.hasItemName()) shape |= 1L << 20;
+        if (meta.hasRarity()) shape |= 1L << 21;
+        if (meta.isHideTooltip()) shape |= 1L << 22;
+        if (meta.hasFood()) shape |= 1L << 23;
+        if (meta.hasTool()) shape |= 1L << 24;
+        if (meta.hasMaxStackSize()) shape |= 1L << 25;
+        if (meta.hasEnchantmentGlintOverride()) shape |= 1L << 26;
+        if (meta.isFireResistant()) shape |= 1L << 27;
+        if (meta.hasJukeboxPlayable()) shape |= 1L << 28;
+        return shape;
+    }
+
+    private static ItemStack rebuild(ItemStack original, byte[] compact) {
+        ItemStack item = new ItemStack(original.getType(), original.getAmount());
+        readCompactMeta(ByteBuffer.wrap(compact), item);
+        return item;
+    }
+
+    private static void readMeta(ByteBuffer in, ItemStack item) {
+        switch (in.get()) {
+            case META_NONE -> {
+            }
+            case META_COMPACT -> readCompactMeta(in, item);
+            case META_BUKKIT -> {
+                byte[] serialized = new byte[readCount(in)];
+                in.get(serialized);
+                item.setItemMeta(deserializeBukkit(serialized).getItemMeta());
+            }
+            default -> throw new IllegalStateException("Unknown item meta section");
+        }
+    }
+
+    private static void readCompactMeta(ByteBuffer in, ItemStack item) {
+        int fields = readVarInt(in);
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            throw new IllegalStateException("Item " + item.getType() + " cannot hold meta");
+        }
+
+        if ((fields & FIELD_NAME) != 0) meta.setDisplayName(readString(in));
+        if ((fields & FIELD_LORE) != 0) {
+            List<String> lore = new ArrayList<>();
+            for (int i = readVarInt(in); i > 0; i--) lore.add(readString(in));
+            meta.setLore(lore);
+        }
+        if ((fields & FIELD_ENCHANTS) != 0) {
+            for (int i = readVarInt(in); i > 0; i--) {
+                String key = readString(in);
+                int level = readVarInt(in);
+                NamespacedKey namespacedKey = NamespacedKey.fromString(key);
+                Enchantment enchantment = namespacedKey == null ? null : Registry.ENCHANTMENT.get(namespacedKey);
+                if (enchantment == null) {
+                    throw new IllegalStateException("Unknown enchantment: " + key);
+                }
+                meta.addEnchant(enchantment, level, true);
+            }
+        }
+        if ((fields & FIELD_FLAGS) != 0) {
+            for (int i = readVarInt(in); i > 0; i--) meta.addItemFlags(ItemFlag.valueOf(readString(in)));
+        }
+        if ((fields & FIELD_DAMAGE) != 0) {
+            int damage = readVarInt(in);
+            if (meta instanceof Damageable damageable) damageable.setDamage(damage);
+        }
+        if ((fields & FIELD_UNBREAKABLE) != 0) meta.setUnbreakable(true);
+        if ((fields & FIELD_MODEL_DATA) != 0) meta.setCustomModelData(readVarInt(in));
+
+        item.setItemMeta(meta);
+    }
+
+    private static byte[] serializeBukkit(ItemStack item) {
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+             BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+
+            dataOutput.writeObject(item);
+            dataOutput.flush();
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize ItemStack", e);
+        }
+    }
+
+    private static ItemStack deserializeBukkit(byte[] data) {
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
+             BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
+
+            return (ItemStack) dataInput.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to deserialize ItemStack", e);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("VarInt is too long");
+    }
+
+    /**
+     * Reads an element count, rejecting counts that could not fit in the rest of the data since every
+     * element takes at least one byte.
+     */
+    private static int readCount(ByteBuffer in) {
+        int count = readVarInt(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalStateException("Invalid element count: " + count);
+        }
+        return count;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private record MetaShape(Class<?> type, long fields) {
+    }
+}
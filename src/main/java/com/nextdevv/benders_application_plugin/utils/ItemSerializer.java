@@ -72,6 +72,18 @@ public class ItemSerializer {
      * @throws IllegalStateException if the ItemStack array cannot be serialized
      */
     public static String serializeItems(@NonNull ItemStack[] items) {
+        return Base64Coder.encodeLines(serializeItemsToBytes(items));
+    }
+
+    /**
+     * Serializes an array of ItemStacks to raw bytes.
+     *
+     * @param items the array of ItemStacks to serialize
+     * @return the serialized ItemStack array
+     * @throws IllegalArgumentException if the items array is null
+     * @throws IllegalStateException if the ItemStack array cannot be serialized
+     */
+    public static byte[] serializeItemsToBytes(@NonNull ItemStack[] items) {
         if (items == null) {
             throw new IllegalArgumentException("ItemStack array cannot be null");
         }
@@ -83,7 +95,8 @@ public class ItemSerializer {
             for (ItemStack item : items) {
                 dataOutput.writeObject(item);
             }
-            return Base64Coder.encodeLines(outputStream.toByteArray());
+            dataOutput.flush();
+            return outputStream.toByteArray();
         } catch (Exception e) {
             throw new IllegalStateException("Unable to serialize ItemStack array", e);
         }
@@ -102,7 +115,23 @@ public class ItemSerializer {
             throw new IllegalArgumentException("Data cannot be null or empty");
         }
 
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64Coder.decodeLines(data));
+        return deserializeItems(Base64Coder.decodeLines(data));
+    }
+
+    /**
+     * Deserializes raw bytes to an array of ItemStacks.
+     *
+     * @param data the serialized ItemStack array
+     * @return the deserialized array of ItemStacks
+     * @throws IllegalArgumentException if the data is null or empty
+     * @throws IllegalStateException if the ItemStack array cannot be deserialized
+     */
+    public static ItemStack[] deserializeItems(byte[] data) {
+        if (data == null || data.length == 0) {
+            throw new IllegalArgumentException("Data cannot be null or empty");
+        }
+
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
              BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
 
             ItemStack[] items = new ItemStack[dataInput.readInt()];
@@ -187,7 +216,7 @@ public class ItemSerializer {
     }
 
     /**
-     * Clones an ItemStack by serializing and deserializing it.
+     * Clones an ItemStack.
      *
      * @param original the ItemStack to clone
      * @return the cloned ItemStack
@@ -197,6 +226,6 @@ public class ItemSerializer {
         if (original == null) {
             throw new IllegalArgumentException("ItemStack cannot be null");
         }
-        return deserializeItem(serializeItem(original));
+        return original.clone();
     }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.nextdevv.benders_application_plugin.utils;
+
+import com.nextdevv.benders_application_plugin.utils.compression.CompressionSelector;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodec;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodecs;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Utility class for encoding chest loot into the binary format stored in the database.
+ * <p>
+ * Every payload starts with a format byte. {@link #FORMAT_V1} payloads are followed by an item codec byte,
+ * a {@link LootCodec} id and the encoded items, so each chest records which codec its loot was written with. {@link #FORMAT_LEGACY} payloads wrap the UTF-8 text of a loot
+ * string written by {@link StringCompressor#smartCompress(String)}, so rows saved before the BLOB column
+ * existed keep decoding until their next write.
+ *
+ * @author giovanni
+ */
+public class LootSerializer {
+    public static final byte FORMAT_LEGACY = 0;
+    public static final byte FORMAT_V1 = 1;
+
+    public static final byte CODEC_BUKKIT = 0;
+    public static final byte CODEC_COMPACT = 1;
+
+    private static final int HEADER_SIZE = 3;
+
+    private static volatile byte defaultCodec = CODEC_COMPACT;
+    private static volatile LootCodec defaultCompression = LootCodecs.FAST;
+
+    /**
+     * Sets the compression codec used by {@link #encode(ItemStack[])}.
+     *
+     * @param compression the compression codec
+     */
+    public static void setDefaultCompression(LootCodec compression) {
+        defaultCompression = compression;
+    }
+
+    /**
+     * Gets the item codec used by {@link #encode(ItemStack[])}.
+     *
+     * @return the item codec
+     */
+    public static byte getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    /**
+     * Sets the item codec used by {@link #encode(ItemStack[])}.
+     *
+     * @param codec the item codec, {@link #CODEC_BUKKIT} or {@link #CODEC_COMPACT}
+     * @throws IllegalArgumentException if the codec is unknown
+     */
+    public static void setDefaultCodec(byte codec) {
+        if (codec != CODEC_BUKKIT && codec != CODEC_COMPACT) {
+            throw new IllegalArgumentException("Unknown item codec: " + codec);
+        }
+        defaultCodec = codec;
+    }
+
+    /**
+     * Gets the item codec matching a configuration name.
+     *
+     * @param name the codec name, "bukkit" or "compact"
+     * @return the item codec
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static byte codecByName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "bukkit" -> CODEC_BUKKIT;
+            case "compact" -> CODEC_COMPACT;
+            default -> throw new IllegalArgumentException("Unknown item codec: " + name);
+        };
+    }
+
+    /**
+     * Encodes an array of ItemStacks into a loot payload using the default item codec.
+     *
+     * @param items the items to encode
+     * @return the encoded loot
+     * @throws IllegalArgumentException if the items array is null
+     * @throws IllegalStateException if the items cannot be serialized
+     */
+    public static byte[] encode(ItemStack[] items) {
+        return encode(items, defaultCodec, defaultCompression);
+    }
+
+    /**
+     * Encodes an array of ItemStacks into a loot payload.
+     *
+     * @param items the items to encode
+     * @param codec the item codec, {@link #CODEC_BUKKIT} or {@link #CODEC_COMPACT}
+     * @param compression the preferred compression codec, see {@link CompressionSelector#select(byte[], LootCodec)};
+     *                    replaced by no compression when it does not shrink the items
+     * @return the encoded loot
+     * @throws IllegalArgumentException if the items array is null or the codec is unknown
+     * @throws IllegalStateException if the items cannot be serialized
+     */
+    public static byte[] encode(ItemStack[] items, byte codec, LootCodec compression) {
+        byte[] serialized = switch (codec) {
+            case CODEC_BUKKIT -> ItemSerializer.serializeItemsToBytes(items);
+            case CODEC_COMPACT -> CompactItemCodec.encode(items);
+            default -> throw new IllegalArgumentException("Unknown item codec: " + codec);
+        };
+        compression = CompressionSelector.select(serialized, compression);
+        byte[] body = compression.compress(serialized);
+        if (body.length >= serialized.length) {
+            compression = LootCodecs.NONE;
+            body = serialized;
+        }
+
+        byte[] payload = new byte[HEADER_SIZE + body.length];
+        payload[0] = FORMAT_V1;
+        payload[1] = codec;
+        payload[2] = compression.getId();
+        System.arraycopy(body, 0, payload, HEADER_SIZE, body.length);
+        return payload;
+    }
+
+    /**
+     * Decodes a loot payload into an array of ItemStacks.
+     *
+     * @param payload the encoded loot, may be null
+     * @return the decoded items, empty if the payload is null or empty
+     * @throws IllegalStateException if the payload uses an unknown format or cannot be deserialized
+     */
+    public static ItemStack[] decode(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return new ItemStack[0];
+        }
+
+        return switch (payload[0]) {
+            case FORMAT_LEGACY -> {
+                String text = new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8);
+                yield ItemSerializer.deserializeItems(StringCompressor.smartDecompress(text));
+            }
+            case FORMAT_V1 -> decodeV1(payload);
+            default -> throw new IllegalStateException("Unknown loot format: " + payload[0]);
+        };
+    }
+
+    private static ItemStack[] decodeV1(byte[] payload) {
+        byte[] serialized = unwrap(payload);
+
+        return switch (payload[1]) {
+            case CODEC_BUKKIT -> ItemSerializer.deserializeItems(serialized);
+            case CODEC_COMPACT -> CompactItemCodec.decode(serialized, 0, serialized.length);
+            default -> throw new IllegalStateException("Unknown item codec: " + payload[1]);
+        };
+    }
+
+    /**
+     * Decompresses the encoded items of a payload without deserializing them.
+     *
+     * @param payload the encoded loot, in {@link #FORMAT_V1}
+     * @return the serialized items, in the item codec recorded in the header
+     * @throws IllegalStateException if the payload is not in {@link #FORMAT_V1} or cannot be decompressed
+     */
+    public static byte[] unwrap(byte[] payload) {
+        if (payload == null || payload.length < HEADER_SIZE || payload[0] != FORMAT_V1) {
+            throw new IllegalStateException("Invalid loot payload");
+        }
+
+        return LootCodecs.byId(payload[2]).decompress(payload, HEADER_SIZE, payload.length - HEADER_SIZE);
+    }
+
+    /**
+     * Gets the item codec a payload was written with.
+     *
+     * @param payload the encoded loot
+     * @return the item codec, or -1 if the payload is empty or legacy
+     */
+    public static byte codecOf(byte[] payload) {
+        return payload != null && payload.length >= HEADER_SIZE && payload[0] == FORMAT_V1 ? payload[1] : -1;
+    }
+
+    /**
+     * Wraps a legacy loot string so it can be carried as a loot payload.
+     *
+     * @param loot the legacy loot string
+     * @return the wrapped payload, or null if the string is null or empty
+     */
+    public static byte[] fromLegacy(String loot) {
+        if (loot == null || loot.isEmpty()) {
+            return null;
+        }
+
+        byte[] text = loot.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[text.length + 1];
+        payload[0] = FORMAT_LEGACY;
+        System.arraycopy(text, 0, payload, 1, text.length);
+        return payload;
+    }
+
+    /**
+     * Checks if a payload still holds a legacy loot string.
+     *
+     * @param payload the payload to check
+     * @return true if the payload should be re-encoded, false otherwise
+     */
+    public static boolean isLegacy(byte[] payload) {
+        return payload != null && payload.length > 0 && payload[0] == FORMAT_LEGACY;
+    }
+}
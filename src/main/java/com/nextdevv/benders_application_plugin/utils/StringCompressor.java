@@ -1,10 +1,13 @@
 package com.nextdevv.benders_application_plugin.utils;
 
-import java.io.ByteArrayOutputStream;
+import com.nextdevv.benders_application_plugin.utils.compression.CompressionSelector;
+import com.nextdevv.benders_application_plugin.utils.compression.DeflaterPool;
+import com.nextdevv.benders_application_plugin.utils.compression.LootCodecs;
+
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 /**
  * Utility class for compressing and decompressing strings using DEFLATE algorithm and RLE
@@ -12,8 +15,6 @@ import java.util.zip.Inflater;
  * @author giovanni
  */
 public class StringCompressor {
-    private static final int BUFFER_SIZE = 1024;
-
     /**
      * Compresses a string using DEFLATE algorithm and Base64 encoding
      * @param input The string to compress
@@ -25,31 +26,29 @@ public class StringCompressor {
             return input;
         }
 
-        try {
-            byte[] inputBytes = input.getBytes(StandardCharsets.UTF_8);
-
-            Deflater deflater = new Deflater();
-            deflater.setLevel(Deflater.BEST_COMPRESSION);
-            deflater.setInput(inputBytes);
-            deflater.finish();
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputBytes.length);
-            byte[] buffer = new byte[BUFFER_SIZE];
-
-            while (!deflater.finished()) {
-                int count = deflater.deflate(buffer);
-                outputStream.write(buffer, 0, count);
-            }
-
-            deflater.end();
-            outputStream.close();
+        byte[] compressedBytes = compress(input.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(compressedBytes);
+    }
 
-            byte[] compressedBytes = outputStream.toByteArray();
+    /**
+     * Compresses raw bytes using DEFLATE algorithm
+     * @param input The bytes to compress
+     * @return Compressed bytes
+     * @throws RuntimeException if compression fails
+     */
+    public static byte[] compress(byte[] input) {
+        return DeflaterPool.deflate(input, 0, input.length, Deflater.BEST_COMPRESSION, null);
+    }
 
-            return Base64.getEncoder().encodeToString(compressedBytes);
-        } catch (Exception e) {
-            throw new RuntimeException("Error compressing string", e);
-        }
+    /**
+     * Compresses the remaining bytes of a buffer using DEFLATE algorithm, without allocating
+     * @param input The bytes to compress, consumed by this call
+     * @param output The buffer the compressed bytes are written to
+     * @return The number of bytes written
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     */
+    public static int compress(ByteBuffer input, ByteBuffer output) {
+        return DeflaterPool.deflate(input, output, Deflater.BEST_COMPRESSION, null);
     }
 
     /**
@@ -63,34 +62,52 @@ public class StringCompressor {
             return compressedString;
         }
 
-        try {
-            byte[] compressedBytes = Base64.getDecoder().decode(compressedString);
-
-            Inflater inflater = new Inflater();
-            inflater.setInput(compressedBytes);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(compressedBytes.length);
-            byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] compressedBytes = Base64.getDecoder().decode(compressedString);
+        return new String(decompress(compressedBytes), StandardCharsets.UTF_8);
+    }
 
-            while (!inflater.finished()) {
-                int count = inflater.inflate(buffer);
-                outputStream.write(buffer, 0, count);
-            }
+    /**
+     * Decompresses bytes that were compressed using the compress method
+     * @param input The compressed bytes
+     * @param offset The offset of the compressed data in the array
+     * @param length The length of the compressed data
+     * @return Original decompressed bytes
+     * @throws RuntimeException if decompression fails
+     */
+    public static byte[] decompress(byte[] input, int offset, int length) {
+        return DeflaterPool.inflate(input, offset, length, null);
+    }
 
-            inflater.end();
-            outputStream.close();
+    /**
+     * Decompresses the remaining bytes of a buffer that were compressed using the compress method, without allocating
+     * @param input The compressed bytes, consumed by this call
+     * @param output The buffer the decompressed bytes are written to
+     * @return The number of bytes written
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     * @throws RuntimeException if decompression fails
+     */
+    public static int decompress(ByteBuffer input, ByteBuffer output) {
+        return DeflaterPool.inflate(input, output, null);
+    }
 
-            return outputStream.toString(StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Error decompressing string", e);
-        }
+    /**
+     * Decompresses bytes that were compressed using the compress method
+     * @param input The compressed bytes
+     * @return Original decompressed bytes
+     * @throws RuntimeException if decompression fails
+     */
+    public static byte[] decompress(byte[] input) {
+        return decompress(input, 0, input.length);
     }
 
     /**
      * Alternative compression method for very short strings using run-length encoding
      * @param input The string to compress
      * @return Compressed string using RLE
+     * @deprecated Inputs containing digits do not round-trip through {@link #decompressRLE(String)},
+     * use {@link com.nextdevv.benders_application_plugin.utils.compression.RunLengthLootCodec} instead
      */
+    @Deprecated
     public static String compressRLE(String input) {
         if (input == null || input.length() <= 3) {
             return input;
@@ -142,7 +159,9 @@ public class StringCompressor {
     }
 
     /**
-     * Utility method to determine the best compression method and compress accordingly
+     * Utility method to determine the best compression method and compress accordingly.
+     * The input is sampled once by {@link CompressionSelector} and left as is when it does not look compressible.
+     * RLE is no longer written because it corrupts inputs containing digits, but RLE strings are still read.
      * @param input The string to compress
      * @return Compressed string using the most efficient method
      */
@@ -151,12 +170,12 @@ public class StringCompressor {
             return input;
         }
 
-        String rleCompressed = compressRLE(input);
-        if (rleCompressed.length() < input.length()) {
-            return "RLE:" + rleCompressed;
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        if (CompressionSelector.select(bytes, LootCodecs.HIGH) == LootCodecs.NONE) {
+            return input;
         }
 
-        String deflateCompressed = compress(input);
+        String deflateCompressed = Base64.getEncoder().encodeToString(compress(bytes));
         if (deflateCompressed.length() < input.length()) {
             return "DEF:" + deflateCompressed;
         }
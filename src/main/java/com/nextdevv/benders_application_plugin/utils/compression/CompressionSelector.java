@@ -0,0 +1,85 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+/**
+ * Picks a compression codec for a payload from a single sampling pass.
+ * <p>
+ * Up to {@link #SAMPLE_WINDOWS} windows of {@link #WINDOW_SIZE} contiguous bytes, spread evenly over the
+ * input, are read once to estimate the byte entropy and the fraction of bytes repeating their predecessor.
+ * No candidate encoding is built, so a payload that would not shrink is never compressed just to be thrown away.
+ *
+ * @author giovanni
+ */
+public class CompressionSelector {
+    private static final int MIN_LENGTH = 32;
+    private static final int SAMPLE_WINDOWS = 16;
+    private static final int WINDOW_SIZE = 256;
+
+    private static final double RUN_THRESHOLD = 0.9;
+    private static final double ENTROPY_THRESHOLD = 7.2;
+
+    /**
+     * Selects the codec for a payload.
+     * <p>
+     * Payloads that are tiny or close to random are stored uncompressed, payloads made almost entirely of runs
+     * use {@link LootCodecs#RLE}, everything else uses the preferred codec. {@link LootCodecs#NONE} is never
+     * upgraded to another codec.
+     *
+     * @param input     the array holding the payload
+     * @param offset    the offset of the payload in the array
+     * @param length    the length of the payload
+     * @param preferred the codec to use when the payload looks compressible
+     * @return the selected codec
+     */
+    public static LootCodec select(byte[] input, int offset, int length, LootCodec preferred) {
+        if (preferred == LootCodecs.NONE || length < MIN_LENGTH) {
+            return LootCodecs.NONE;
+        }
+
+        int[] histogram = new int[256];
+        int sampled = 0;
+        int repeated = 0;
+
+        int windows = Math.min(SAMPLE_WINDOWS, Math.max(1, length / WINDOW_SIZE));
+        int window = Math.min(WINDOW_SIZE, length);
+        long stride = windows == 1 ? 0 : (long) (length - window) / (windows - 1);
+        for (int w = 0; w < windows; w++) {
+            int start = offset + (int) (w * stride);
+            int previous = -1;
+            for (int i = start; i < start + window; i++) {
+                int value = input[i] & 0xFF;
+                histogram[value]++;
+                if (value == previous) repeated++;
+                previous = value;
+            }
+            sampled += window;
+        }
+
+        if ((double) repeated / sampled >= RUN_THRESHOLD) {
+            return LootCodecs.RLE;
+        }
+        return entropy(histogram, sampled) >= ENTROPY_THRESHOLD ? LootCodecs.NONE : preferred;
+    }
+
+    /**
+     * Selects the codec for a payload.
+     *
+     * @param input     the payload
+     * @param preferred the codec to use when the payload looks compressible
+     * @return the selected codec
+     * @see #select(byte[], int, int, LootCodec)
+     */
+    public static LootCodec select(byte[] input, LootCodec preferred) {
+        return select(input, 0, input.length, preferred);
+    }
+
+    private static double entropy(int[] histogram, int total) {
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count == 0) continue;
+
+            double p = (double) count / total;
+            entropy -= p * Math.log(p);
+        }
+        return entropy / Math.log(2);
+    }
+}
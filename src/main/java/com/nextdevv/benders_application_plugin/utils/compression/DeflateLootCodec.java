@@ -0,0 +1,60 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DEFLATE codec with a configurable level.
+ * <p>
+ * When a {@link LootDictionary} is active it is set as the preset dictionary. The zlib header of the
+ * output records the Adler-32 of that dictionary, so decompression finds the right one on its own and
+ * payloads written with older dictionaries keep decoding. The zlib streams come from {@link DeflaterPool}.
+ *
+ * @author giovanni
+ */
+public class DeflateLootCodec implements LootCodec {
+    public static final byte ID = 1;
+
+    private final String name;
+    private final int level;
+
+    /**
+     * Creates a DEFLATE codec.
+     *
+     * @param name  the name used to select the codec in the configuration
+     * @param level the DEFLATE compression level
+     */
+    public DeflateLootCodec(String name, int level) {
+        this.name = name;
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        return DeflaterPool.deflate(input, 0, input.length, level, LootDictionary.getActive());
+    }
+
+    @Override
+    public int compress(ByteBuffer input, ByteBuffer output) {
+        return DeflaterPool.deflate(input, output, level, LootDictionary.getActive());
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) {
+        return DeflaterPool.inflate(input, offset, length, LootDictionary::get);
+    }
+
+    @Override
+    public int decompress(ByteBuffer input, ByteBuffer output) {
+        return DeflaterPool.inflate(input, output, LootDictionary::get);
+    }
+}
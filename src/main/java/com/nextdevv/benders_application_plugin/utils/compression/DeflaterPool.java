@@ -0,0 +1,179 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Thread-local pool of {@link Deflater} and {@link Inflater} instances and scratch buffers.
+ * <p>
+ * Each thread keeps one deflater, one inflater and one output buffer for its whole life, so repeated
+ * calls never allocate native zlib streams. The instances are reset after every use instead of being
+ * ended, which also means an exception can no longer leak their native memory. The {@link ByteBuffer}
+ * variants write into the caller's buffer and do not allocate at all.
+ *
+ * @author giovanni
+ */
+public class DeflaterPool {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[][]> BUFFERS = ThreadLocal.withInitial(() -> new byte[][]{new byte[INITIAL_BUFFER_SIZE]});
+
+    /**
+     * Compresses bytes.
+     *
+     * @param input      the bytes to compress
+     * @param offset     the offset of the bytes in the array
+     * @param length     the number of bytes to compress
+     * @param level      the DEFLATE compression level
+     * @param dictionary the preset dictionary, or null for none
+     * @return the compressed bytes
+     */
+    public static byte[] deflate(byte[] input, int offset, int length, int level, byte[] dictionary) {
+        Deflater deflater = deflater(level, dictionary);
+        byte[][] holder = BUFFERS.get();
+        try {
+            deflater.setInput(input, offset, length);
+            deflater.finish();
+
+            byte[] buffer = holder[0];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == buffer.length) buffer = grow(holder, size);
+                size += deflater.deflate(buffer, size, buffer.length - size);
+            }
+            return Arrays.copyOf(buffer, size);
+        } finally {
+            deflater.reset();
+            release(holder);
+        }
+    }
+
+    /**
+     * Compresses the remaining bytes of the input into the output buffer.
+     *
+     * @param input      the bytes to compress, consumed by this call
+     * @param output     the buffer the compressed bytes are written to
+     * @param level      the DEFLATE compression level
+     * @param dictionary the preset dictionary, or null for none
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the output buffer is too small
+     */
+    public static int deflate(ByteBuffer input, ByteBuffer output, int level, byte[] dictionary) {
+        Deflater deflater = deflater(level, dictionary);
+        int start = output.position();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                if (!output.hasRemaining()) throw new BufferOverflowException();
+                deflater.deflate(output);
+            }
+            return output.position() - start;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * Decompresses bytes.
+     *
+     * @param input        the compressed bytes
+     * @param offset       the offset of the compressed bytes in the array
+     * @param length       the number of compressed bytes
+     * @param dictionaries resolves a preset dictionary from its Adler-32 id, may return null
+     * @return the decompressed bytes
+     * @throws IllegalStateException if the data cannot be decompressed
+     */
+    public static byte[] inflate(byte[] input, int offset, int length, IntFunction<byte[]> dictionaries) {
+        Inflater inflater = INFLATERS.get();
+        byte[][] holder = BUFFERS.get();
+        try {
+            inflater.setInput(input, offset, length);
+
+            byte[] buffer = holder[0];
+            int size = 0;
+            while (!inflater.finished()) {
+                if (size == buffer.length) buffer = grow(holder, size);
+
+                int count = inflater.inflate(buffer, size, buffer.length - size);
+                if (count == 0) stall(inflater, dictionaries);
+                size += count;
+            }
+            return Arrays.copyOf(buffer, size);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Error decompressing bytes", e);
+        } finally {
+            inflater.reset();
+            release(holder);
+        }
+    }
+
+    /**
+     * Decompresses the remaining bytes of the input into the output buffer.
+     *
+     * @param input        the compressed bytes, consumed by this call
+     * @param output       the buffer the decompressed bytes are written to
+     * @param dictionaries resolves a preset dictionary from its Adler-32 id, may return null
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the output buffer is too small
+     * @throws IllegalStateException   if the data cannot be decompressed
+     */
+    public static int inflate(ByteBuffer input, ByteBuffer output, IntFunction<byte[]> dictionaries) {
+        Inflater inflater = INFLATERS.get();
+        int start = output.position();
+        try {
+            inflater.setInput(input);
+
+            while (!inflater.finished()) {
+                if (!output.hasRemaining()) throw new BufferOverflowException();
+                if (inflater.inflate(output) == 0) stall(inflater, dictionaries);
+            }
+            return output.position() - start;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Error decompressing bytes", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static Deflater deflater(int level, byte[] dictionary) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.setLevel(level);
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        return deflater;
+    }
+
+    private static void stall(Inflater inflater, IntFunction<byte[]> dictionaries) {
+        if (inflater.needsDictionary()) {
+            byte[] dictionary = dictionaries == null ? null : dictionaries.apply(inflater.getAdler());
+            if (dictionary == null) {
+                throw new IllegalStateException("Missing dictionary " + Integer.toHexString(inflater.getAdler()));
+            }
+            inflater.setDictionary(dictionary);
+        } else if (inflater.needsInput()) {
+            throw new IllegalStateException("Truncated DEFLATE stream");
+        }
+    }
+
+    private static byte[] grow(byte[][] holder, int size) {
+        holder[0] = Arrays.copyOf(holder[0], size * 2);
+        return holder[0];
+    }
+
+    private static void release(byte[][] holder) {
+        if (holder[0].length > MAX_RETAINED_BUFFER_SIZE) {
+            holder[0] = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compression codec for encoded chest loot.
+ * <p>
+ * The id of a codec is written in the loot header, so any codec sharing the same id must be able
+ * to decompress the output of the others.
+ *
+ * @author giovanni
+ */
+public interface LootCodec {
+    /**
+     * Gets the id written in the loot header for payloads compressed by this codec.
+     *
+     * @return the codec id
+     */
+    byte getId();
+
+    /**
+     * Gets the name used to select this codec in the configuration.
+     *
+     * @return the codec name
+     */
+    String getName();
+
+    /**
+     * Compresses the given bytes.
+     *
+     * @param input the bytes to compress
+     * @return the compressed bytes
+     * @throws IllegalStateException if compression fails
+     */
+    byte[] compress(byte[] input);
+
+    /**
+     * Decompresses the given bytes.
+     *
+     * @param input  the array holding the compressed bytes
+     * @param offset the offset of the compressed bytes in the array
+     * @param length the length of the compressed bytes
+     * @return the decompressed bytes
+     * @throws IllegalStateException if the data cannot be decompressed
+     */
+    byte[] decompress(byte[] input, int offset, int length);
+
+    /**
+     * Compresses the remaining bytes of the input into the output buffer without allocating.
+     *
+     * @param input  the bytes to compress, consumed by this call
+     * @param output the buffer the compressed bytes are written to
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     * @throws IllegalStateException            if compression fails
+     */
+    int compress(ByteBuffer input, ByteBuffer output);
+
+    /**
+     * Decompresses the remaining bytes of the input into the output buffer without allocating.
+     *
+     * @param input  the compressed bytes, consumed by this call
+     * @param output the buffer the decompressed bytes are written to
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException if the output buffer is too small
+     * @throws IllegalStateException            if the data cannot be decompressed
+     */
+    int decompress(ByteBuffer input, ByteBuffer output);
+}
@@ -0,0 +1,49 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * The available loot compression codecs.
+ *
+ * @author giovanni
+ */
+public class LootCodecs {
+    public static final LootCodec NONE = new NoneLootCodec();
+    public static final LootCodec RLE = new RunLengthLootCodec();
+    public static final LootCodec FAST = new DeflateLootCodec("fast", Deflater.BEST_SPEED);
+    public static final LootCodec HIGH = new DeflateLootCodec("high", Deflater.BEST_COMPRESSION);
+
+    /**
+     * Gets the codec that decompresses payloads with the given id.
+     *
+     * @param id the codec id from the loot header
+     * @return the codec
+     * @throws IllegalStateException if the id is unknown
+     */
+    public static LootCodec byId(byte id) {
+        return switch (id) {
+            case NoneLootCodec.ID -> NONE;
+            case DeflateLootCodec.ID -> FAST;
+            case RunLengthLootCodec.ID -> RLE;
+            default -> throw new IllegalStateException("Unknown loot compression: " + id);
+        };
+    }
+
+    /**
+     * Gets the codec matching a configuration name.
+     *
+     * @param name the codec name
+     * @return the codec
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static LootCodec byName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "none" -> NONE;
+            case "rle" -> RLE;
+            case "fast" -> FAST;
+            case "high" -> HIGH;
+            default -> throw new IllegalArgumentException("Unknown loot compression: " + name);
+        };
+    }
+}
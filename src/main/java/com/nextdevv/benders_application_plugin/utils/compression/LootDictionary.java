@@ -0,0 +1,136 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+
+/**
+ * Registry and trainer for the preset dictionaries used by {@link DeflateLootCodec}.
+ * <p>
+ * Dictionaries are identified by their Adler-32 checksum, which is the id DEFLATE writes in the header
+ * of every stream compressed with a preset dictionary.
+ *
+ * @author giovanni
+ */
+public class LootDictionary {
+    /**
+     * Largest useful dictionary, DEFLATE can only reference the last 32 KiB.
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final int GRAM_SIZE = 8;
+    private static final int SEGMENT_SIZE = 32;
+
+    private static final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private static volatile byte[] active;
+
+    /**
+     * Registers a dictionary so payloads compressed with it can be decompressed.
+     *
+     * @param dictionary the dictionary
+     * @return the dictionary id
+     */
+    public static int register(byte[] dictionary) {
+        int id = id(dictionary);
+        dictionaries.put(id, dictionary);
+        return id;
+    }
+
+    /**
+     * Gets a registered dictionary.
+     *
+     * @param id the dictionary id
+     * @return the dictionary, or null if it is not registered
+     */
+    public static byte[] get(int id) {
+        return dictionaries.get(id);
+    }
+
+    /**
+     * Sets the dictionary used for new payloads, registering it if needed.
+     *
+     * @param dictionary the dictionary, or null to compress without one
+     */
+    public static void setActive(byte[] dictionary) {
+        if (dictionary != null) register(dictionary);
+        active = dictionary;
+    }
+
+    /**
+     * Gets the dictionary used for new payloads.
+     *
+     * @return the active dictionary, or null if there is none
+     */
+    public static byte[] getActive() {
+        return active;
+    }
+
+    /**
+     * Computes the id of a dictionary.
+     *
+     * @param dictionary the dictionary
+     * @return the Adler-32 checksum of the dictionary
+     */
+    public static int id(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        return (int) adler.getValue();
+    }
+
+    /**
+     * Trains a dictionary from sample payloads.
+     * <p>
+     * Each sample is cut into fixed-size segments, and each segment is scored by how many other samples
+     * share its 8-byte substrings. The best segments are concatenated with the highest scores last,
+     * where DEFLATE can reference them with the shortest distances.
+     *
+     * @param samples the uncompressed sample payloads
+     * @param maxSize the maximum dictionary size, capped at {@link #MAX_SIZE}
+     * @return the trained dictionary, or null if the samples share nothing
+     */
+    public static byte[] train(List<byte[]> samples, int maxSize) {
+        maxSize = Math.min(maxSize, MAX_SIZE);
+
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> grams = new HashSet<>();
+            ByteBuffer buffer = ByteBuffer.wrap(sample);
+            for (int i = 0; i + GRAM_SIZE <= sample.length; i++) {
+                grams.add(buffer.getLong(i));
+            }
+            grams.forEach(gram -> frequencies.merge(gram, 1, Integer::sum));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        Set<ByteBuffer> seen = new HashSet<>();
+        for (byte[] sample : samples) {
+            ByteBuffer buffer = ByteBuffer.wrap(sample);
+            for (int start = 0; start + SEGMENT_SIZE <= sample.length; start += SEGMENT_SIZE) {
+                long score = 0;
+                for (int i = start; i + GRAM_SIZE <= start + SEGMENT_SIZE; i++) {
+                    score += frequencies.get(buffer.getLong(i)) - 1;
+                }
+
+                if (score > 0 && seen.add(ByteBuffer.wrap(sample, start, SEGMENT_SIZE).slice())) {
+                    segments.add(new Segment(sample, start, score));
+                }
+            }
+        }
+
+        if (segments.isEmpty()) return null;
+
+        segments.sort(Comparator.comparingLong(Segment::score).reversed());
+        int count = Math.min(segments.size(), maxSize / SEGMENT_SIZE);
+
+        byte[] dictionary = new byte[count * SEGMENT_SIZE];
+        for (int i = 0; i < count; i++) {
+            Segment segment = segments.get(i);
+            System.arraycopy(segment.sample(), segment.start(), dictionary, (count - 1 - i) * SEGMENT_SIZE, SEGMENT_SIZE);
+        }
+        return dictionary;
+    }
+
+    private record Segment(byte[] sample, int start, long score) {
+    }
+}
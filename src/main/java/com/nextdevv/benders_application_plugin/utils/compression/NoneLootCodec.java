@@ -0,0 +1,49 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Codec that stores loot uncompressed.
+ *
+ * @author giovanni
+ */
+public class NoneLootCodec implements LootCodec {
+    public static final byte ID = 0;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "none";
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        return input;
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) {
+        return Arrays.copyOfRange(input, offset, offset + length);
+    }
+
+    @Override
+    public int compress(ByteBuffer input, ByteBuffer output) {
+        return copy(input, output);
+    }
+
+    @Override
+    public int decompress(ByteBuffer input, ByteBuffer output) {
+        return copy(input, output);
+    }
+
+    private static int copy(ByteBuffer input, ByteBuffer output) {
+        int length = input.remaining();
+        output.put(input);
+        return length;
+    }
+}
@@ -0,0 +1,152 @@
+package com.nextdevv.benders_application_plugin.utils.compression;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte-oriented run-length codec.
+ * <p>
+ * The output starts with the varint length of the original bytes, followed by tokens. Each token is a
+ * varint header holding a count and a flag in its lowest bit: a run token is followed by the single
+ * repeated byte, a literal token by count raw bytes. Unlike the text RLE of {@link
+ * com.nextdevv.benders_application_plugin.utils.StringCompressor} every byte value round-trips, and the
+ * output is never more than about 1/16 larger than the input.
+ *
+ * @author giovanni
+ */
+public class RunLengthLootCodec implements LootCodec {
+    public static final byte ID = 2;
+    private static final int MIN_RUN = 3;
+    /**
+     * The largest original length accepted when decompressing, far above any chest but small enough that a
+     * corrupt length cannot exhaust the heap.
+     */
+    private static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "rle";
+    }
+
+    @Override
+    public byte[] compress(byte[] input) {
+        ByteBuffer output = ByteBuffer.allocate(input.length + (input.length >> 4) + 16);
+        compress(ByteBuffer.wrap(input), output);
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    @Override
+    public int compress(ByteBuffer input, ByteBuffer output) {
+        int start = output.position();
+        int end = input.limit();
+        int literal = input.position();
+        int i = literal;
+
+        writeVarInt(output, end - i);
+        while (i < end) {
+            byte value = input.get(i);
+            int run = 1;
+            while (i + run < end && input.get(i + run) == value) run++;
+
+            if (run < MIN_RUN) {
+                i += run;
+                continue;
+            }
+
+            writeLiteral(input, literal, i, output);
+            writeVarInt(output, run << 1 | 1);
+            output.put(value);
+            i += run;
+            literal = i;
+        }
+        writeLiteral(input, literal, end, output);
+
+        input.position(end);
+        return output.position() - start;
+    }
+
+    private static void writeLiteral(ByteBuffer input, int from, int to, ByteBuffer output) {
+        if (from == to) return;
+
+        writeVarInt(output, (to - from) << 1);
+        output.put(input.slice(from, to - from));
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) {
+        ByteBuffer in = ByteBuffer.wrap(input, offset, length);
+        try {
+            byte[] output = new byte[readLength(in)];
+            decode(in, ByteBuffer.wrap(output));
+            return output;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid run-length data", e);
+        }
+    }
+
+    @Override
+    public int decompress(ByteBuffer input, ByteBuffer output) {
+        try {
+            int length = readLength(input);
+            if (length > output.remaining()) {
+                throw new BufferOverflowException();
+            }
+            decode(input, output.slice(output.position(), length));
+            output.position(output.position() + length);
+            return length;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid run-length data", e);
+        }
+    }
+
+    private static int readLength(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IllegalStateException("Invalid run-length data length: " + length);
+        }
+        return length;
+    }
+
+    private static void decode(ByteBuffer in, ByteBuffer out) {
+        while (out.hasRemaining()) {
+            int header = readVarInt(in);
+            int count = header >>> 1;
+            if (count == 0 || count > out.remaining()) {
+                throw new IllegalStateException("Invalid run-length data");
+            }
+
+            if ((header & 1) != 0) {
+                byte value = in.get();
+                for (int i = 0; i < count; i++) out.put(value);
+            } else {
+                out.put(in.slice(in.position(), count));
+                in.position(in.position() + count);
+            }
+        }
+    }
+
+    private static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("VarInt is too long");
+    }
+}